@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.awt.Dimension;
+import java.util.Random;
+
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.PaddedGridStore;
+
+final class BenchmarkForests {
+
+    static final double TREES_DENSITY = 0.6;
+
+    /**
+     * Generations evolved per invocation from a freshly seeded forest, few enough for the fires
+     * to still burn at the end: a forest seeded with 5% of fires burns out in about twelve.
+     */
+    static final int GENERATIONS = 8;
+
+    private BenchmarkForests() {
+    }
+
+    static Dimension sizeOf(final int columnsCount, final int rowsCount, final int cellSize, final int borderWidth) {
+        final int cellBox = cellSize + borderWidth;
+        return new Dimension(columnsCount * cellBox + borderWidth, rowsCount * cellBox + borderWidth);
+    }
+
+    static ForestEngine newEngine(final ForestEngine.StepMode stepMode) {
+        return newEngine(stepMode, false);
+    }
+
+    static ForestEngine newEngine(final ForestEngine.StepMode stepMode, final boolean padded) {
+        final var engine = padded ? new ForestEngine(PaddedGridStore::new) : new ForestEngine();
+        engine.setStepMode(stepMode);
+        return engine;
+    }
+
+    static void seed(final ForestEngine engine, final long seed, final double fireDensity) {
+        engine.seed(seed, TREES_DENSITY);
+
+        final Random random = new Random(~seed);
+        for (int row = 0; row < engine.getRowsCount(); row++)
+            for (int column = 0; column < engine.getColumnsCount(); column++)
+                if (engine.getState(column, row) == ForestRule.TREE && random.nextDouble() < fireDensity)
+                    engine.setState(column, row, ForestRule.FIRE);
+    }
+}
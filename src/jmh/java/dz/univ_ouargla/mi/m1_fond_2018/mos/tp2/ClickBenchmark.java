@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JPanel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ClickBenchmark {
+
+    private static final int CELL_SIZE = 10;
+    private static final int BORDER_WIDTH = 1;
+    private static final int DRAG_EVENTS = 1_000;
+
+    @Param({"100", "500"})
+    public int length;
+
+    @Param({"42"})
+    public long seed;
+
+    private ForestKeeper forestKeeper;
+    private MouseEvent[] dragEvents;
+
+    @Setup(Level.Trial)
+    public void createForest() {
+        final var engine = BenchmarkForests.newEngine(ForestEngine.StepMode.FRONTIER);
+        forestKeeper = new ForestKeeper(engine);
+        final Dimension size = BenchmarkForests.sizeOf(length, length, CELL_SIZE, BORDER_WIDTH);
+        forestKeeper.pack(size, CELL_SIZE, BORDER_WIDTH);
+        paintOnce(size);
+
+        dragEvents = newDragEvents(new JPanel(), size);
+    }
+
+    private void paintOnce(final Dimension size) {
+        // clicks are mapped to cells through the geometry of the last paint
+        final var image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+        final var graphics = image.createGraphics();
+        try {
+            forestKeeper.paint(graphics, size, CELL_SIZE, BORDER_WIDTH);
+        } finally {
+            graphics.dispose();
+        }
+    }
+
+    private MouseEvent[] newDragEvents(final Component source, final Dimension size) {
+        final Random random = new Random(seed);
+        final MouseEvent[] events = new MouseEvent[DRAG_EVENTS];
+
+        int x = size.width / 2;
+        int y = size.height / 2;
+        for (int i = 0; i < DRAG_EVENTS; i++) {
+            x = Math.floorMod(x + random.nextInt(2 * CELL_SIZE + 1) - CELL_SIZE, size.width);
+            y = Math.floorMod(y + random.nextInt(2 * CELL_SIZE + 1) - CELL_SIZE, size.height);
+            events[i] = new MouseEvent(source, MouseEvent.MOUSE_DRAGGED, i, MouseEvent.BUTTON1_DOWN_MASK,
+                    x, y, 0, false, MouseEvent.BUTTON1);
+        }
+        return events;
+    }
+
+    @Benchmark
+    public int dragBurst() {
+        int changes = 0;
+        for (int i = 0; i < dragEvents.length; i++) {
+            final Cell.State cursorType = i % 2 == 0 ? Cell.TREE_STATE : Cell.FIRE_STATE;
+            if (forestKeeper.handleClick(dragEvents[i], cursorType))
+                changes++;
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Evolves {@link BenchmarkForests#GENERATIONS} generations per invocation, each invocation
+ * starting again from the same seeded forest, shared copy-on-write with a pristine one.
+ * With more than one thread, full scans are split in bands evolved by a fork/join pool.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EvolveBenchmark {
+
+    @Param({"100", "500", "2000"})
+    public int length;
+
+    @Param({"0.001", "0.05"})
+    public double fireDensity;
+
+    @Param({"FULL_SCAN", "FRONTIER"})
+    public ForestEngine.StepMode stepMode;
+
+    @Param({"false", "true"})
+    public boolean padded;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    @Param({"42"})
+    public long seed;
+
+    private ForestKeeper pristineKeeper;
+    private ForestEngine engine;
+    private ForestKeeper forestKeeper;
+
+    @Setup(Level.Trial)
+    public void createForest() {
+        final var size = BenchmarkForests.sizeOf(length, length, 1, 0);
+        final var pristineEngine = BenchmarkForests.newEngine(stepMode, padded);
+        pristineKeeper = new ForestKeeper(pristineEngine);
+        pristineKeeper.pack(size, 1, 0);
+        BenchmarkForests.seed(pristineEngine, seed, fireDensity);
+
+        engine = BenchmarkForests.newEngine(stepMode, padded);
+        engine.setParallelism(parallelism);
+        forestKeeper = new ForestKeeper(engine);
+        forestKeeper.pack(size, 1, 0);
+    }
+
+    @Setup(Level.Invocation)
+    public void restoreForest() {
+        forestKeeper.copyFrom(pristineKeeper);
+        // rebuilds the frontier, out of the measured generations
+        engine.isBurnedOut();
+    }
+
+    @TearDown(Level.Trial)
+    public void shutDownPool() {
+        engine.setParallelism(1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkForests.GENERATIONS)
+    public void evolve() {
+        for (int i = 0; i < BenchmarkForests.GENERATIONS; i++)
+            forestKeeper.evolve();
+    }
+}
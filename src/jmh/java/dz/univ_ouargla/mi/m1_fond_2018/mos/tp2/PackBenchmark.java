@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.awt.Dimension;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PackBenchmark {
+
+    private static final int GROWTH_STEPS = 16;
+
+    @Param({"500", "2000"})
+    public int length;
+
+    @Param({"42"})
+    public long seed;
+
+    private Dimension[] growingSizes;
+    private ForestKeeper source;
+    private ForestKeeper target;
+
+    @Setup(Level.Trial)
+    public void createForests() {
+        growingSizes = new Dimension[GROWTH_STEPS];
+        for (int i = 0; i < GROWTH_STEPS; i++) {
+            final int stepLength = length * (i + 1) / GROWTH_STEPS;
+            growingSizes[i] = BenchmarkForests.sizeOf(stepLength, stepLength / 2 + 1, 1, 0);
+        }
+
+        final var engine = BenchmarkForests.newEngine(ForestEngine.StepMode.FULL_SCAN);
+        source = new ForestKeeper(engine);
+        source.pack(BenchmarkForests.sizeOf(length, length, 1, 0), 1, 0);
+        BenchmarkForests.seed(engine, seed, 0.01);
+
+        target = new ForestKeeper();
+    }
+
+    @Benchmark
+    public ForestKeeper packGrowth() {
+        final var forestKeeper = new ForestKeeper();
+        for (final Dimension size : growingSizes)
+            forestKeeper.pack(size, 1, 0);
+        return forestKeeper;
+    }
+
+    @Benchmark
+    public void copyFrom(final Blackhole blackhole) {
+        target.copyFrom(source);
+        blackhole.consume(target);
+    }
+}
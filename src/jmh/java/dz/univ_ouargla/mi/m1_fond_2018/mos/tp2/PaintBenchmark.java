@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PaintBenchmark {
+
+    @Param({"100", "500"})
+    public int length;
+
+    @Param({"1", "10"})
+    public int cellSize;
+
+    @Param({"0", "1"})
+    public int borderWidth;
+
+    @Param({"DIRECT", "CACHED_IMAGE", "PIXELS"})
+    public ForestKeeper.RenderMode renderMode;
+
+    @Param({"42"})
+    public long seed;
+
+    private ForestKeeper forestKeeper;
+    private Dimension size;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup(Level.Trial)
+    public void createForest() {
+        final var engine = BenchmarkForests.newEngine(ForestEngine.StepMode.FRONTIER);
+        forestKeeper = new ForestKeeper(engine);
+        forestKeeper.setRenderMode(renderMode);
+        size = BenchmarkForests.sizeOf(length, length, cellSize, borderWidth);
+        forestKeeper.pack(size, cellSize, borderWidth);
+        BenchmarkForests.seed(engine, seed, 0.05);
+
+        image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown(Level.Trial)
+    public void disposeGraphics() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        forestKeeper.paint(graphics, size, cellSize, borderWidth);
+        return image;
+    }
+}
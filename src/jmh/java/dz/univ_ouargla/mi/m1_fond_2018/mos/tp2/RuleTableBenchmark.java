@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.RuleTable;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.RuleTableEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Evolves {@link BenchmarkForests#GENERATIONS} generations per invocation, each invocation
+ * starting again from the same seeded cells.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RuleTableBenchmark {
+
+    private static final String FOREST_RULE = "forest";
+
+    @Param({"500", "2000"})
+    public int length;
+
+    @Param({FOREST_RULE, "B3/S23", "B2/S/C3"})
+    public String rule;
+
+    @Param({"42"})
+    public long seed;
+
+    private RuleTableEngine engine;
+    private byte[] seededStates;
+
+    @Setup(Level.Trial)
+    public void createEngine() {
+        engine = new RuleTableEngine(FOREST_RULE.equals(rule) ? ForestRule.TABLE : RuleTable.parse(rule), length, length);
+
+        seededStates = new byte[length * length];
+        if (FOREST_RULE.equals(rule)) {
+            final var forest = BenchmarkForests.newEngine(ForestEngine.StepMode.FULL_SCAN);
+            forest.resize(length, length);
+            BenchmarkForests.seed(forest, seed, 0.05);
+            for (int row = 0; row < length; row++)
+                for (int column = 0; column < length; column++)
+                    seededStates[row * length + column] = (byte) forest.getState(column, row);
+        } else {
+            final Random random = new Random(seed);
+            for (int i = 0; i < seededStates.length; i++)
+                seededStates[i] = (byte) random.nextInt(engine.getRule().getStatesCount());
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void restoreEngine() {
+        for (int row = 0; row < length; row++)
+            for (int column = 0; column < length; column++)
+                engine.setState(column, row, seededStates[row * length + column]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkForests.GENERATIONS)
+    public RuleTableEngine evolve() {
+        engine.step(BenchmarkForests.GENERATIONS);
+        return engine;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.BandGridStore;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.BlockedGridStore;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.FlatGridStore;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.GridStore;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.PaddedGridStore;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.ShellGridStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the memory layouts of the cells on full scans; run with {@code -prof perfnorm}
+ * (Linux only) to get the cache misses per generation next to the timings. Each invocation evolves
+ * {@link BenchmarkForests#GENERATIONS} generations from the same seeded forest.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StoreLayoutBenchmark {
+
+    public enum Layout {
+        SHELL(ShellGridStore::new),
+        BANDS(BandGridStore::new),
+        FLAT(FlatGridStore::new),
+        BLOCKED(BlockedGridStore::new),
+        PADDED(PaddedGridStore::new);
+
+        private final Supplier<? extends GridStore> storeFactory;
+
+        Layout(final Supplier<? extends GridStore> storeFactory) {
+            this.storeFactory = storeFactory;
+        }
+    }
+
+    @Param({"500", "4000"})
+    public int length;
+
+    @Param({"SHELL", "BANDS", "FLAT", "BLOCKED", "PADDED"})
+    public Layout layout;
+
+    @Param({"42"})
+    public long seed;
+
+    private ForestEngine pristineEngine;
+    private ForestEngine engine;
+
+    @Setup(Level.Trial)
+    public void createForest() {
+        pristineEngine = newEngine();
+        BenchmarkForests.seed(pristineEngine, seed, 0.05);
+        engine = newEngine();
+    }
+
+    private ForestEngine newEngine() {
+        final var newEngine = new ForestEngine(layout.storeFactory);
+        newEngine.setStepMode(ForestEngine.StepMode.FULL_SCAN);
+        newEngine.resize(length, length);
+        return newEngine;
+    }
+
+    @Setup(Level.Invocation)
+    public void restoreForest() {
+        engine.copyFrom(pristineEngine);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkForests.GENERATIONS)
+    public ForestEngine evolve() {
+        engine.step(BenchmarkForests.GENERATIONS);
+        return engine;
+    }
+}
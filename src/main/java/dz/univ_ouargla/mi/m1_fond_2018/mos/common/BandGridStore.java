@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+import java.util.Arrays;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Stores cells in bands of {@value #BAND_ROWS} rows, each band split in chunks of
+ * {@value #CHUNK_COLUMNS} columns: adding rows appends bands and adding columns appends chunks
+ * to every band, so existing cells never move and memory follows {@code columns × rows}
+ * whatever the aspect ratio, where {@link ShellGridStore} needs the square of the longest side.
+ * <p>
+ * Chunks are copied on write, as {@link ShellGridStore} ones are.
+ */
+public final class BandGridStore implements GridStore {
+
+    public static final int BAND_ROWS = 1 << 4;
+    public static final int CHUNK_COLUMNS = 1 << 8;
+
+    private static final int BAND_BITS = Integer.numberOfTrailingZeros(BAND_ROWS);
+    private static final int CHUNK_BITS = Integer.numberOfTrailingZeros(CHUNK_COLUMNS);
+    private static final int BAND_MASK = BAND_ROWS - 1;
+    private static final int CHUNK_MASK = CHUNK_COLUMNS - 1;
+    private static final int CHUNK_CELLS = BAND_ROWS * CHUNK_COLUMNS;
+
+    private byte[][][] bands = new byte[0][][];
+    private boolean[][] sharedChunks = new boolean[0][];
+    private int chunksPerBand;
+
+    @Override
+    public void ensureCapacity(final int columnsCount, final int rowsCount) {
+        if (columnsCount < 0 || rowsCount < 0)
+            throw new IllegalArgumentException("invalid size: " + columnsCount + " x " + rowsCount);
+
+        final int neededChunksPerBand = Math.max(chunksPerBand, (columnsCount + CHUNK_MASK) >>> CHUNK_BITS);
+        final int neededBands = (rowsCount + BAND_MASK) >>> BAND_BITS;
+
+        if (neededChunksPerBand > chunksPerBand)
+            for (int band = 0; band < bands.length; band++) {
+                bands[band] = appendChunks(bands[band], neededChunksPerBand);
+                sharedChunks[band] = Arrays.copyOf(sharedChunks[band], neededChunksPerBand);
+            }
+        chunksPerBand = neededChunksPerBand;
+
+        if (neededBands > bands.length) {
+            final int availableBands = bands.length;
+            bands = Arrays.copyOf(bands, neededBands);
+            sharedChunks = Arrays.copyOf(sharedChunks, neededBands);
+            for (int band = availableBands; band < neededBands; band++) {
+                bands[band] = appendChunks(new byte[0][], chunksPerBand);
+                sharedChunks[band] = new boolean[chunksPerBand];
+            }
+        }
+    }
+
+    private static byte[][] appendChunks(final byte[][] chunks, final int chunksCount) {
+        final byte[][] newChunks = Arrays.copyOf(chunks, chunksCount);
+        for (int chunk = chunks.length; chunk < chunksCount; chunk++)
+            newChunks[chunk] = new byte[CHUNK_CELLS];
+        return newChunks;
+    }
+
+    @Override
+    public void trim(final int columnsCount, final int rowsCount) {
+        final int neededChunksPerBand = Math.min(chunksPerBand, (columnsCount + CHUNK_MASK) >>> CHUNK_BITS);
+        final int neededBands = Math.min(bands.length, (rowsCount + BAND_MASK) >>> BAND_BITS);
+
+        bands = Arrays.copyOf(bands, neededBands);
+        sharedChunks = Arrays.copyOf(sharedChunks, neededBands);
+        if (neededChunksPerBand < chunksPerBand)
+            for (int band = 0; band < neededBands; band++) {
+                bands[band] = Arrays.copyOf(bands[band], neededChunksPerBand);
+                sharedChunks[band] = Arrays.copyOf(sharedChunks[band], neededChunksPerBand);
+            }
+        chunksPerBand = neededChunksPerBand;
+    }
+
+    @Override
+    public long getAllocatedCells() {
+        return (long) bands.length * chunksPerBand * CHUNK_CELLS;
+    }
+
+    private static int offsetOf(final int column, final int row) {
+        return (row & BAND_MASK) << CHUNK_BITS | column & CHUNK_MASK;
+    }
+
+    @Override
+    public byte get(final int column, final int row) {
+        return bands[row >>> BAND_BITS][column >>> CHUNK_BITS][offsetOf(column, row)];
+    }
+
+    @Override
+    public void set(final int column, final int row, final byte data) {
+        final int band = row >>> BAND_BITS;
+        final int chunk = column >>> CHUNK_BITS;
+        if (sharedChunks[band][chunk])
+            unshare(band, chunk);
+        bands[band][chunk][offsetOf(column, row)] = data;
+    }
+
+    private void unshare(final int band, final int chunk) {
+        bands[band][chunk] = bands[band][chunk].clone();
+        sharedChunks[band][chunk] = false;
+    }
+
+    @Override
+    public void prepareConcurrentWrites(@NotNull final GridStore model, final int columnsCount, final int rowsCount) {
+        ensureCapacity(columnsCount, rowsCount);
+        for (int band = 0; band < bands.length; band++)
+            for (int chunk = 0; chunk < chunksPerBand; chunk++)
+                if (sharedChunks[band][chunk])
+                    unshare(band, chunk);
+    }
+
+    @NotNull
+    @Override
+    public BandGridStore fork() {
+        final var fork = new BandGridStore();
+        fork.share(this);
+        return fork;
+    }
+
+    private void share(final BandGridStore source) {
+        bands = new byte[source.bands.length][][];
+        sharedChunks = new boolean[source.bands.length][];
+        chunksPerBand = source.chunksPerBand;
+        for (int band = 0; band < bands.length; band++) {
+            Arrays.fill(source.sharedChunks[band], true);
+            bands[band] = source.bands[band].clone();
+            sharedChunks[band] = source.sharedChunks[band].clone();
+        }
+    }
+
+    @Override
+    public void copyFrom(@NotNull final GridStore source, final int columnsCount, final int rowsCount) {
+        if (source instanceof BandGridStore)
+            share((BandGridStore) source);
+        else
+            GridStore.super.copyFrom(source, columnsCount, rowsCount);
+    }
+}
@@ -12,38 +12,44 @@
 
 package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
 
+import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.beans.PropertyChangeEvent;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import javax.swing.JPanel;
-import javax.swing.Timer;
 
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class BasicCellGrid extends JPanel {
 
     private static final long serialVersionUID = 3151857207506041641L;
 
+    private static final Color OVERLAY_BACKGROUND = new Color(0, 0, 0, 160);
+    private static final int OVERLAY_MARGIN = 4;
+
     protected final Lock settersLock = new ReentrantLock();
-    protected final Timer animator;
+    protected final CellsAnimator animator;
 
     private final AbstractCellsManager cells;
     private volatile boolean started = BooleanProperty.STARTED.getDefault();
     private volatile int cellSize = IntProperty.CELL_SIZE.getDefault();
     private volatile int borderWidth = IntProperty.BORDER_WIDTH.getDefault();
+    private volatile Supplier<? extends List<String>> overlay;
+    private final Dimension paintSize = new Dimension();
 
     public BasicCellGrid(final @NotNull AbstractCellsManager cells) {
         this.cells = Objects.requireNonNull(cells);
-        this.animator = new Timer(IntProperty.FRAME_DELAY.getDefault(), event -> {
-            cells.evolve();
-            repaint();
-        });
+        this.animator = new CellsAnimator(cells, this::repaint, IntProperty.FRAME_DELAY.getDefault());
         addListeners();
     }
 
@@ -101,15 +107,15 @@ public class BasicCellGrid extends JPanel {
 
     @Contract(pure = true)
     public final int getFrameDelay() {
-        return animator.getDelay();
+        return animator.getFrameDelay();
     }
 
     public final void setFrameDelay(final int newFrameDelay) {
         settersLock.lock();
         try {
-            final var oldFrameDelay = animator.getDelay();
+            final var oldFrameDelay = animator.getFrameDelay();
             if (oldFrameDelay != newFrameDelay) {
-                animator.setDelay(newFrameDelay);
+                animator.setFrameDelay(newFrameDelay);
                 firePropertyChange(IntProperty.FRAME_DELAY.fullName(), oldFrameDelay, newFrameDelay);
             }
         } finally {
@@ -157,6 +163,19 @@ public class BasicCellGrid extends JPanel {
         }
     }
 
+    @Nullable
+    public final Supplier<? extends List<String>> getOverlay() {
+        return overlay;
+    }
+
+    /**
+     * Sets the lines drawn over the cells at each paint, or removes them when {@code null}.
+     */
+    public final void setOverlay(@Nullable final Supplier<? extends List<String>> overlay) {
+        this.overlay = overlay;
+        repaint();
+    }
+
     private void packCells() {
         cells.pack(getSize(), cellSize, borderWidth);
     }
@@ -171,8 +190,32 @@ public class BasicCellGrid extends JPanel {
 
     @Override
     public final void paint(final Graphics g) {
+        animator.frameRendered();
         super.paint(g);
-        cells.paint((Graphics2D) g, getSize(), cellSize, borderWidth);
+        cells.paint((Graphics2D) g, getSize(paintSize), cellSize, borderWidth);
+
+        final var currentOverlay = overlay;
+        if (currentOverlay != null)
+            drawOverlay(g, currentOverlay.get());
+    }
+
+    private static void drawOverlay(final Graphics g, final List<String> lines) {
+        final var metrics = g.getFontMetrics();
+        final int lineHeight = metrics.getHeight();
+
+        int width = 0;
+        for (final String line : lines)
+            width = Math.max(width, metrics.stringWidth(line));
+
+        g.setColor(OVERLAY_BACKGROUND);
+        g.fillRect(0, 0, width + OVERLAY_MARGIN * 2, lineHeight * lines.size() + OVERLAY_MARGIN * 2);
+
+        g.setColor(Color.WHITE);
+        int y = OVERLAY_MARGIN + metrics.getAscent();
+        for (final String line : lines) {
+            g.drawString(line, OVERLAY_MARGIN, y);
+            y += lineHeight;
+        }
     }
 
     private static final class SizeListener extends ComponentAdapter {
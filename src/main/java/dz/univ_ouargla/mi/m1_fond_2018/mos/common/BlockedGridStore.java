@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+import java.util.Arrays;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Stores cells in square blocks of {@value #BLOCK_LENGTH} cells a side, each block laid out in
+ * Z-order (Morton order): the neighbors of a cell, vertical ones included, are nearly always in
+ * the same 4 KiB block, and mostly in the same cache line, so that scanning the grid block by block
+ * touches each block once.
+ * <p>
+ * Growing the grid only allocates the new blocks, existing cells never move. Blocks are copied on
+ * write, as {@link ShellGridStore} chunks are.
+ */
+public final class BlockedGridStore implements GridStore {
+
+    public static final int BLOCK_BITS = 6;
+    public static final int BLOCK_LENGTH = 1 << BLOCK_BITS;
+
+    private static final int BLOCK_MASK = BLOCK_LENGTH - 1;
+    private static final int BLOCK_CELLS = BLOCK_LENGTH * BLOCK_LENGTH;
+
+    private static final int[] COLUMN_OFFSETS = interleavedBits(0);
+    private static final int[] ROW_OFFSETS = interleavedBits(1);
+
+    private byte[][] blocks = new byte[0][];
+    private boolean[] sharedBlocks = new boolean[0];
+    private int columnBlocks;
+    private int rowBlocks;
+
+    /**
+     * Returns the Z-order offsets of the coordinates inside a block, their bits spread
+     * to the even positions, or to the odd ones with a shift of one.
+     */
+    private static int[] interleavedBits(final int shift) {
+        final int[] offsets = new int[BLOCK_LENGTH];
+        for (int coordinate = 0; coordinate < BLOCK_LENGTH; coordinate++)
+            for (int bit = 0; bit < BLOCK_BITS; bit++)
+                offsets[coordinate] |= (coordinate >>> bit & 1) << (bit * 2 + shift);
+        return offsets;
+    }
+
+    private static int blocksFor(final int cellsCount) {
+        return (cellsCount + BLOCK_MASK) >>> BLOCK_BITS;
+    }
+
+    @Override
+    public void ensureCapacity(final int columnsCount, final int rowsCount) {
+        if (columnsCount < 0 || rowsCount < 0)
+            throw new IllegalArgumentException("invalid size: " + columnsCount + " x " + rowsCount);
+
+        final int neededColumnBlocks = Math.max(columnBlocks, blocksFor(columnsCount));
+        final int neededRowBlocks = Math.max(rowBlocks, blocksFor(rowsCount));
+        if (neededColumnBlocks > columnBlocks || neededRowBlocks > rowBlocks)
+            relayout(neededColumnBlocks, neededRowBlocks);
+    }
+
+    @Override
+    public void trim(final int columnsCount, final int rowsCount) {
+        final int neededColumnBlocks = Math.min(columnBlocks, blocksFor(columnsCount));
+        final int neededRowBlocks = Math.min(rowBlocks, blocksFor(rowsCount));
+        if (neededColumnBlocks < columnBlocks || neededRowBlocks < rowBlocks)
+            relayout(neededColumnBlocks, neededRowBlocks);
+    }
+
+    /**
+     * Moves the blocks references to their places in a grid of the given size, allocating the missing
+     * blocks; only the references move, never the cells.
+     */
+    private void relayout(final int newColumnBlocks, final int newRowBlocks) {
+        final byte[][] newBlocks = new byte[newColumnBlocks * newRowBlocks][];
+        final boolean[] newSharedBlocks = new boolean[newBlocks.length];
+        for (int rowBlock = 0; rowBlock < newRowBlocks; rowBlock++)
+            for (int columnBlock = 0; columnBlock < newColumnBlocks; columnBlock++) {
+                final int newBlock = rowBlock * newColumnBlocks + columnBlock;
+                if (rowBlock < rowBlocks && columnBlock < columnBlocks) {
+                    final int block = rowBlock * columnBlocks + columnBlock;
+                    newBlocks[newBlock] = blocks[block];
+                    newSharedBlocks[newBlock] = sharedBlocks[block];
+                } else
+                    newBlocks[newBlock] = new byte[BLOCK_CELLS];
+            }
+
+        blocks = newBlocks;
+        sharedBlocks = newSharedBlocks;
+        columnBlocks = newColumnBlocks;
+        rowBlocks = newRowBlocks;
+    }
+
+    @Override
+    public long getAllocatedCells() {
+        return (long) blocks.length * BLOCK_CELLS;
+    }
+
+    private int blockOf(final int column, final int row) {
+        return (row >>> BLOCK_BITS) * columnBlocks + (column >>> BLOCK_BITS);
+    }
+
+    private static int offsetOf(final int column, final int row) {
+        return COLUMN_OFFSETS[column & BLOCK_MASK] | ROW_OFFSETS[row & BLOCK_MASK];
+    }
+
+    @Override
+    public byte get(final int column, final int row) {
+        return blocks[blockOf(column, row)][offsetOf(column, row)];
+    }
+
+    @Override
+    public void set(final int column, final int row, final byte data) {
+        final int block = blockOf(column, row);
+        if (sharedBlocks[block])
+            unshare(block);
+        blocks[block][offsetOf(column, row)] = data;
+    }
+
+    private void unshare(final int block) {
+        blocks[block] = blocks[block].clone();
+        sharedBlocks[block] = false;
+    }
+
+    @Override
+    public void prepareConcurrentWrites(@NotNull final GridStore model, final int columnsCount, final int rowsCount) {
+        ensureCapacity(columnsCount, rowsCount);
+        for (int block = 0; block < blocks.length; block++)
+            if (sharedBlocks[block])
+                unshare(block);
+    }
+
+    @Override
+    public void forEachNonZero(final int columnsCount, final int rowsCount, @NotNull final CellVisitor visitor) {
+        final int toRowBlock = Math.min(rowBlocks, blocksFor(rowsCount));
+        final int toColumnBlock = Math.min(columnBlocks, blocksFor(columnsCount));
+        for (int rowBlock = 0; rowBlock < toRowBlock; rowBlock++)
+            for (int columnBlock = 0; columnBlock < toColumnBlock; columnBlock++) {
+                final byte[] block = blocks[rowBlock * columnBlocks + columnBlock];
+                final int fromColumn = columnBlock << BLOCK_BITS;
+                final int fromRow = rowBlock << BLOCK_BITS;
+                final int toColumn = Math.min(fromColumn + BLOCK_LENGTH, columnsCount);
+                final int toRow = Math.min(fromRow + BLOCK_LENGTH, rowsCount);
+                for (int row = fromRow; row < toRow; row++)
+                    for (int column = fromColumn; column < toColumn; column++) {
+                        final byte data = block[offsetOf(column, row)];
+                        if (data != 0)
+                            visitor.visit(column, row, data);
+                    }
+            }
+    }
+
+    @NotNull
+    @Override
+    public BlockedGridStore fork() {
+        final var fork = new BlockedGridStore();
+        fork.share(this);
+        return fork;
+    }
+
+    private void share(final BlockedGridStore source) {
+        Arrays.fill(source.sharedBlocks, true);
+        blocks = source.blocks.clone();
+        sharedBlocks = source.sharedBlocks.clone();
+        columnBlocks = source.columnBlocks;
+        rowBlocks = source.rowBlocks;
+    }
+
+    @Override
+    public void copyFrom(@NotNull final GridStore source, final int columnsCount, final int rowsCount) {
+        if (source instanceof BlockedGridStore)
+            share((BlockedGridStore) source);
+        else
+            GridStore.super.copyFrom(source, columnsCount, rowsCount);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import javax.swing.SwingUtilities;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Evolves the cells on a dedicated thread, away from the event dispatch thread, and hands the
+ * generations over to the screen through a single slot: at most one repaint is pending at a time,
+ * so the screen always shows the latest completed generation and intermediate ones are dropped.
+ * At the minimal frame delay the generations are produced as fast as possible.
+ * <p>
+ * A generation failing is reported to the uncaught exception handler of the thread and the
+ * animation goes on with the next one, as a Swing timer goes on after a failed tick.
+ */
+public final class CellsAnimator {
+
+    private static final String THREAD_NAME = "cells-animator";
+
+    private final AbstractCellsManager cells;
+    private final Runnable repaint;
+    private final AtomicBoolean framePending = new AtomicBoolean();
+
+    private volatile int frameDelay;
+    private volatile Thread thread;
+
+    public CellsAnimator(@NotNull final AbstractCellsManager cells, @NotNull final Runnable repaint,
+                         final int frameDelay) {
+        this.cells = Objects.requireNonNull(cells);
+        this.repaint = Objects.requireNonNull(repaint);
+        this.frameDelay = frameDelay;
+    }
+
+    public int getFrameDelay() {
+        return frameDelay;
+    }
+
+    public void setFrameDelay(final int frameDelay) {
+        this.frameDelay = frameDelay;
+        final Thread current = thread;
+        if (current != null)
+            LockSupport.unpark(current);
+    }
+
+    public synchronized void start() {
+        if (thread == null) {
+            final Thread newThread = new Thread(this::animate, THREAD_NAME);
+            newThread.setDaemon(true);
+            thread = newThread;
+            newThread.start();
+        }
+    }
+
+    public synchronized void stop() {
+        final Thread current = thread;
+        if (current != null) {
+            thread = null;
+            LockSupport.unpark(current);
+        }
+    }
+
+    /**
+     * To be called by the screen when it starts painting, which frees the hand-off slot.
+     */
+    public void frameRendered() {
+        framePending.set(false);
+    }
+
+    private void animate() {
+        final Thread self = Thread.currentThread();
+        try {
+            while (thread == self) {
+                final long frameStart = System.nanoTime();
+                try {
+                    cells.evolve();
+                } catch (final RuntimeException e) {
+                    self.getUncaughtExceptionHandler().uncaughtException(self, e);
+                }
+                if (framePending.compareAndSet(false, true))
+                    SwingUtilities.invokeLater(repaint);
+
+                waitNextFrame(self, frameStart);
+            }
+        } finally {
+            // an error ending the thread must not keep the next start from creating a new one
+            synchronized (this) {
+                if (thread == self)
+                    thread = null;
+            }
+        }
+    }
+
+    private void waitNextFrame(final Thread self, final long frameStart) {
+        while (thread == self) {
+            final int delay = frameDelay;
+            if (delay <= IntProperty.FRAME_DELAY.getMin())
+                return;
+
+            final long remaining = frameStart + TimeUnit.MILLISECONDS.toNanos(delay) - System.nanoTime();
+            if (remaining <= 0)
+                return;
+
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+}
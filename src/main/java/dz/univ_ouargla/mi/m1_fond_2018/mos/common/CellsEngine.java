@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+public interface CellsEngine {
+
+    int getColumnsCount();
+
+    int getRowsCount();
+
+    long getGeneration();
+
+    int getState(final int column, final int row);
+
+    void setState(final int column, final int row, final int state);
+
+    void step();
+
+    default void step(final int generations) {
+        for (int i = 0; i < generations; i++)
+            step();
+    }
+
+    default long count(final int state) {
+        long count = 0;
+        for (int row = 0; row < getRowsCount(); row++)
+            for (int column = 0; column < getColumnsCount(); column++)
+                if (getState(column, row) == state)
+                    count++;
+        return count;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+/**
+ * Counter-based random numbers: each value is a hash of a seed, a generation and a cell position,
+ * so it does not depend on which thread draws it nor in which order, and any part of the grid can
+ * be drawn on its own. The mixing is the finalizer of SplitMix64.
+ */
+public final class CounterRandom {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final int FRACTION_BITS = 53;
+
+    /**
+     * The threshold of a probability of one, above any {@linkplain #fractionOf(long) fraction}.
+     */
+    public static final long ALWAYS = 1L << FRACTION_BITS;
+
+    private CounterRandom() {
+    }
+
+    public static long mix(final long value) {
+        long mixed = (value ^ value >>> 30) * 0xBF58476D1CE4E5B9L;
+        mixed = (mixed ^ mixed >>> 27) * 0x94D049BB133111EBL;
+        return mixed ^ mixed >>> 31;
+    }
+
+    /**
+     * Returns the stream of values of the given generation, to be computed once per generation.
+     */
+    public static long streamOf(final long seed, final long generation) {
+        return mix(seed + GOLDEN_GAMMA * (generation + 1));
+    }
+
+    /**
+     * Returns the random value of the given cell in the given {@linkplain #streamOf(long, long) stream};
+     * columns and rows are taken on 32 bits each.
+     */
+    public static long at(final long stream, final int column, final int row) {
+        return mix(stream + GOLDEN_GAMMA * ((long) column << Integer.SIZE | row & 0xFFFFFFFFL));
+    }
+
+    /**
+     * Returns the uniform fraction, out of {@link #ALWAYS}, made of the high bits of the given value.
+     */
+    public static long fractionOf(final long random) {
+        return random >>> Long.SIZE - FRACTION_BITS;
+    }
+
+    /**
+     * Returns the threshold under which a {@linkplain #fractionOf(long) fraction} falls with the given
+     * probability, so that drawing costs one integer comparison.
+     */
+    public static long thresholdOf(final double probability) {
+        if (!(probability >= 0 && probability <= 1))
+            throw new IllegalArgumentException("invalid probability: " + probability);
+        return (long) Math.ceil(probability * ALWAYS);
+    }
+
+    public static boolean below(final long random, final long threshold) {
+        return fractionOf(random) < threshold;
+    }
+}
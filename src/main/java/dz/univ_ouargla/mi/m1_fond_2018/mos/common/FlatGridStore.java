@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Stores cells row by row in a single array, growing the capacity geometrically
+ * so that successive resizes are amortized.
+ * <p>
+ * The cells array is copied on write: {@link #fork()} and {@link #copyFrom(GridStore, int, int)}
+ * only share it, and it is duplicated by the first store writing to it.
+ */
+public final class FlatGridStore implements GridStore {
+
+    private static final int MAX_CELLS = Integer.MAX_VALUE - 8;
+
+    private byte[] cells = new byte[0];
+    private int columnsCapacity;
+    private int rowsCapacity;
+    private boolean shared;
+
+    @Override
+    public void ensureCapacity(final int columnsCount, final int rowsCount) {
+        if (columnsCount > columnsCapacity || rowsCount > rowsCapacity) {
+            int newColumnsCapacity = grow(columnsCapacity, columnsCount);
+            int newRowsCapacity = grow(rowsCapacity, rowsCount);
+
+            if ((long) newColumnsCapacity * newRowsCapacity > MAX_CELLS) {
+                newColumnsCapacity = Math.max(columnsCapacity, columnsCount);
+                newRowsCapacity = Math.max(rowsCapacity, rowsCount);
+            }
+
+            final long newCellsCount = (long) newColumnsCapacity * newRowsCapacity;
+            if (newCellsCount > MAX_CELLS)
+                throw new IllegalArgumentException("too many cells: " + columnsCount + " x " + rowsCount);
+
+            final byte[] newCells = new byte[(int) newCellsCount];
+            for (int row = 0; row < rowsCapacity; row++)
+                System.arraycopy(cells, row * columnsCapacity, newCells, row * newColumnsCapacity, columnsCapacity);
+
+            cells = newCells;
+            shared = false;
+            columnsCapacity = newColumnsCapacity;
+            rowsCapacity = newRowsCapacity;
+        }
+    }
+
+    private static int grow(final int capacity, final int needed) {
+        if (needed <= capacity)
+            return capacity;
+        else
+            return Math.max(needed, capacity + (capacity >> 1));
+    }
+
+    @Override
+    public void trim(final int columnsCount, final int rowsCount) {
+        final int newColumnsCapacity = Math.min(columnsCapacity, columnsCount);
+        final int newRowsCapacity = Math.min(rowsCapacity, rowsCount);
+        if (newColumnsCapacity < columnsCapacity || newRowsCapacity < rowsCapacity) {
+            final byte[] newCells = new byte[newColumnsCapacity * newRowsCapacity];
+            for (int row = 0; row < newRowsCapacity; row++)
+                System.arraycopy(cells, row * columnsCapacity, newCells, row * newColumnsCapacity, newColumnsCapacity);
+
+            cells = newCells;
+            shared = false;
+            columnsCapacity = newColumnsCapacity;
+            rowsCapacity = newRowsCapacity;
+        }
+    }
+
+    @Override
+    public long getAllocatedCells() {
+        return cells.length;
+    }
+
+    @Override
+    public byte get(final int column, final int row) {
+        return cells[row * columnsCapacity + column];
+    }
+
+    @Override
+    public void set(final int column, final int row, final byte data) {
+        if (shared)
+            unshare();
+        cells[row * columnsCapacity + column] = data;
+    }
+
+    @Override
+    public void prepareConcurrentWrites(@NotNull final GridStore model, final int columnsCount, final int rowsCount) {
+        ensureCapacity(columnsCount, rowsCount);
+        unshare();
+    }
+
+    private void unshare() {
+        if (shared) {
+            cells = cells.clone();
+            shared = false;
+        }
+    }
+
+    @NotNull
+    @Override
+    public FlatGridStore fork() {
+        final var fork = new FlatGridStore();
+        fork.share(this);
+        return fork;
+    }
+
+    private void share(final FlatGridStore source) {
+        source.shared = true;
+        cells = source.cells;
+        columnsCapacity = source.columnsCapacity;
+        rowsCapacity = source.rowsCapacity;
+        shared = true;
+    }
+
+    @Override
+    public void copyFrom(@NotNull final GridStore source, final int columnsCount, final int rowsCount) {
+        if (source instanceof FlatGridStore)
+            share((FlatGridStore) source);
+        else
+            GridStore.super.copyFrom(source, columnsCount, rowsCount);
+    }
+}
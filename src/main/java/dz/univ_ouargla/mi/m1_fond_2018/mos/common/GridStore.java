@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+import org.jetbrains.annotations.NotNull;
+
+public interface GridStore {
+
+    @FunctionalInterface
+    interface CellVisitor {
+
+        void visit(final int column, final int row, final byte data);
+    }
+
+    void ensureCapacity(final int columnsCount, final int rowsCount);
+
+    /**
+     * Releases the memory holding only cells outside the given area, which then read as zero.
+     */
+    void trim(final int columnsCount, final int rowsCount);
+
+    long getAllocatedCells();
+
+    byte get(final int column, final int row);
+
+    void set(final int column, final int row, final byte data);
+
+    /**
+     * Returns a copy of this store sharing its memory until either side writes to it.
+     * Neither store may be written while the fork is being taken.
+     */
+    @NotNull
+    GridStore fork();
+
+    /**
+     * Ends any sharing with forks and allocates whatever writing non-zero data where the given model
+     * holds some would need, so that these cells can then be written from several threads at once.
+     */
+    void prepareConcurrentWrites(@NotNull final GridStore model, final int columnsCount, final int rowsCount);
+
+    /**
+     * Calls the visitor for each cell of the given area holding non-zero data, in no particular order.
+     */
+    default void forEachNonZero(final int columnsCount, final int rowsCount, @NotNull final CellVisitor visitor) {
+        for (int column = 0; column < columnsCount; column++)
+            for (int row = 0; row < rowsCount; row++) {
+                final byte data = get(column, row);
+                if (data != 0)
+                    visitor.visit(column, row, data);
+            }
+    }
+
+    default void copyFrom(@NotNull final GridStore source, final int columnsCount, final int rowsCount) {
+        ensureCapacity(columnsCount, rowsCount);
+        for (int row = 0; row < rowsCount; row++)
+            for (int column = 0; column < columnsCount; column++)
+                set(column, row, source.get(column, row));
+    }
+}
@@ -0,0 +1,434 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+import java.util.Objects;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Runs a {@link RuleTable} with the Hashlife algorithm: the cells form a quadtree of canonical
+ * {@link QuadNode}s, so that identical regions are stored once, and the future of every node is
+ * memoized, so that repeated patterns are computed once and {@link #jump(long)} skips
+ * {@code 2^k} generations at the cost of a single one. Meant for long runs of large patterns,
+ * it is slower than {@link RuleTableEngine} on chaotic ones.
+ * <p>
+ * The universe is unbounded: {@link #getColumnsCount()} and {@link #getRowsCount()} only give the
+ * area observed from the origin, cells outside of it evolve as well and may be read and written.
+ * The rule must leave the zero state unchanged when all neighbors are zero.
+ * <p>
+ * Canonical nodes are kept in a cache bounded by {@link #getMaxNodes()}, the least recently used
+ * ones being forgotten first: results stay exact, forgotten nodes are only built and computed
+ * again when met anew. Instances are not thread safe.
+ */
+public final class HashLifeEngine implements CellsEngine {
+
+    public static final int DEFAULT_MAX_NODES = 1 << 20;
+
+    private static final int MIN_LEVEL = 3;
+    private static final int DEFAULT_BUCKETS = 1 << 10;
+    private static final int MAX_LEVEL = Long.SIZE - 2;
+
+    private final RuleTable rule;
+    private final QuadNode[] leaves;
+    private final QuadNode[] emptyNodes = new QuadNode[MAX_LEVEL + 1];
+    private final int maxNodes;
+
+    private QuadNode[] buckets = new QuadNode[DEFAULT_BUCKETS];
+    private int nodesCount;
+    private QuadNode oldestNode;
+    private QuadNode newestNode;
+
+    private QuadNode root;
+    private int columnsCount;
+    private int rowsCount;
+    private long generation;
+    private int stepLog;
+
+    public HashLifeEngine(@NotNull final RuleTable rule) {
+        this(rule, DEFAULT_MAX_NODES);
+    }
+
+    public HashLifeEngine(@NotNull final RuleTable rule, final int maxNodes) {
+        this.rule = Objects.requireNonNull(rule);
+        if (rule.next(0, 0) != 0)
+            throw new IllegalArgumentException("the zero state is not stable under: " + rule.getName());
+
+        if (maxNodes < 1)
+            throw new IllegalArgumentException("invalid nodes count: " + maxNodes);
+        this.maxNodes = maxNodes;
+        this.leaves = new QuadNode[rule.getStatesCount()];
+        for (int state = 0; state < leaves.length; state++)
+            leaves[state] = new QuadNode((byte) state);
+
+        emptyNodes[0] = leaves[0];
+        for (int level = 1; level <= MAX_LEVEL; level++) {
+            final QuadNode empty = emptyNodes[level - 1];
+            emptyNodes[level] = new QuadNode(empty, empty, empty, empty, QuadNode.hashOf(empty, empty, empty, empty));
+        }
+        root = emptyNodes[MIN_LEVEL];
+    }
+
+    @NotNull
+    public RuleTable getRule() {
+        return rule;
+    }
+
+    public int getMaxNodes() {
+        return maxNodes;
+    }
+
+    public int getNodesCount() {
+        return nodesCount;
+    }
+
+    /**
+     * Sets the observed area, which has no effect on the evolution.
+     */
+    public void resize(final int columnsCount, final int rowsCount) {
+        if (columnsCount < 0 || rowsCount < 0)
+            throw new IllegalArgumentException("invalid size: " + columnsCount + " x " + rowsCount);
+        this.columnsCount = columnsCount;
+        this.rowsCount = rowsCount;
+    }
+
+    @Override
+    public int getColumnsCount() {
+        return columnsCount;
+    }
+
+    @Override
+    public int getRowsCount() {
+        return rowsCount;
+    }
+
+    @Override
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the number of non-zero cells in the whole universe.
+     */
+    public long getPopulation() {
+        return root.population;
+    }
+
+    /**
+     * Returns the quadtree root, centered on the origin.
+     */
+    @NotNull
+    QuadNode getRoot() {
+        return root;
+    }
+
+    @Override
+    public int getState(final int column, final int row) {
+        final long half = 1L << (root.level - 1);
+        if (column < -half || row < -half || column >= half || row >= half)
+            return 0;
+
+        QuadNode node = root;
+        long x = column + half;
+        long y = row + half;
+        while (node.level > 0) {
+            final long quadrant = 1L << (node.level - 1);
+            final boolean east = x >= quadrant;
+            final boolean south = y >= quadrant;
+            node = south ? (east ? node.se : node.sw) : (east ? node.ne : node.nw);
+            if (east)
+                x -= quadrant;
+            if (south)
+                y -= quadrant;
+        }
+        return node.state;
+    }
+
+    /**
+     * Sets the state of any cell of the universe, inside the observed area or not.
+     */
+    @Override
+    public void setState(final int column, final int row, final int state) {
+        if (!rule.isValid(state))
+            throw new IllegalArgumentException("invalid state: " + state);
+
+        while (!contains(root, column, row))
+            root = expand(root);
+
+        final long half = 1L << (root.level - 1);
+        root = withState(root, column + half, row + half, leaves[state]);
+    }
+
+    private static boolean contains(final QuadNode node, final long column, final long row) {
+        final long half = 1L << (node.level - 1);
+        return column >= -half && row >= -half && column < half && row < half;
+    }
+
+    private QuadNode withState(final QuadNode node, final long x, final long y, final QuadNode leaf) {
+        if (node.level == 0)
+            return leaf;
+
+        final long quadrant = 1L << (node.level - 1);
+        if (y < quadrant) {
+            if (x < quadrant)
+                return join(withState(node.nw, x, y, leaf), node.ne, node.sw, node.se);
+            else
+                return join(node.nw, withState(node.ne, x - quadrant, y, leaf), node.sw, node.se);
+        } else if (x < quadrant)
+            return join(node.nw, node.ne, withState(node.sw, x, y - quadrant, leaf), node.se);
+        else
+            return join(node.nw, node.ne, node.sw, withState(node.se, x - quadrant, y - quadrant, leaf));
+    }
+
+    /**
+     * Counts the cells of the observed area in the given state.
+     */
+    @Override
+    public long count(final int state) {
+        if (!rule.isValid(state))
+            return 0;
+
+        final long half = 1L << (root.level - 1);
+        final long nonZero = countInside(root, -half, -half, state == 0 ? -1 : state);
+        return state == 0 ? (long) columnsCount * rowsCount - nonZero : nonZero;
+    }
+
+    /**
+     * Counts the cells in the given state, or all non-zero cells if negative, inside the observed area.
+     */
+    private long countInside(final QuadNode node, final long fromColumn, final long fromRow, final int state) {
+        final long length = 1L << node.level;
+        if (node.population == 0 || fromColumn >= columnsCount || fromRow >= rowsCount
+                || fromColumn + length <= 0 || fromRow + length <= 0)
+            return 0;
+        else if (state < 0 && fromColumn >= 0 && fromRow >= 0
+                && fromColumn + length <= columnsCount && fromRow + length <= rowsCount)
+            return node.population;
+        else if (node.level == 0)
+            return state < 0 || node.state == state ? 1 : 0;
+
+        final long quadrant = length >>> 1;
+        return countInside(node.nw, fromColumn, fromRow, state)
+                + countInside(node.ne, fromColumn + quadrant, fromRow, state)
+                + countInside(node.sw, fromColumn, fromRow + quadrant, state)
+                + countInside(node.se, fromColumn + quadrant, fromRow + quadrant, state);
+    }
+
+    @Override
+    public void step() {
+        jump(1);
+    }
+
+    @Override
+    public void step(final int generations) {
+        if (generations > 0)
+            jump(generations);
+    }
+
+    /**
+     * Advances the given number of generations, in as many leaps as it has one bits.
+     */
+    public void jump(final long generations) {
+        if (generations < 0)
+            throw new IllegalArgumentException("invalid generations count: " + generations);
+
+        for (int bit = 0; bit < Long.SIZE - 1; bit++)
+            if ((generations >>> bit & 1) != 0)
+                leap(bit);
+    }
+
+    private void leap(final int stepLog) {
+        // the pattern must stay inside the result, which is the center of the root
+        while (root.level < stepLog + MIN_LEVEL || centerOfCenter(root).population != root.population)
+            root = expand(root);
+
+        this.stepLog = stepLog;
+        root = advance(root);
+        generation += 1L << stepLog;
+    }
+
+    private QuadNode centerOfCenter(final QuadNode node) {
+        return join(node.nw.se.se, node.ne.sw.sw, node.sw.ne.ne, node.se.nw.nw);
+    }
+
+    private QuadNode expand(final QuadNode node) {
+        if (node.level >= MAX_LEVEL)
+            throw new IllegalStateException("universe too large");
+
+        final QuadNode empty = emptyNodes[node.level - 1];
+        return join(
+                join(empty, empty, empty, node.nw),
+                join(empty, empty, node.ne, empty),
+                join(empty, node.sw, empty, empty),
+                join(node.se, empty, empty, empty));
+    }
+
+    /**
+     * Returns the center of the given node, {@code 2^min(stepLog, level - 2)} generations later.
+     */
+    private QuadNode advance(final QuadNode node) {
+        final int nodeStepLog = Math.min(stepLog, node.level - 2);
+        if (node.resultStepLog == nodeStepLog)
+            return node.result;
+
+        final QuadNode result;
+        if (node.population == 0)
+            result = emptyNodes[node.level - 1];
+        else if (node.level == 2)
+            result = advanceBase(node);
+        else
+            result = advanceRecursively(node, nodeStepLog == node.level - 2);
+
+        node.result = result;
+        node.resultStepLog = nodeStepLog;
+        return result;
+    }
+
+    /**
+     * Applies the rule once to the four central cells of a four cells square.
+     */
+    private QuadNode advanceBase(final QuadNode node) {
+        final int[] cells = new int[16];
+        for (int y = 0; y < 4; y++)
+            for (int x = 0; x < 4; x++) {
+                final QuadNode quadrant = y < 2 ? (x < 2 ? node.nw : node.ne) : (x < 2 ? node.sw : node.se);
+                final QuadNode leaf = (y & 1) == 0 ? ((x & 1) == 0 ? quadrant.nw : quadrant.ne)
+                        : ((x & 1) == 0 ? quadrant.sw : quadrant.se);
+                cells[y * 4 + x] = leaf.state;
+            }
+
+        final QuadNode[] next = new QuadNode[4];
+        for (int y = 1; y < 3; y++)
+            for (int x = 1; x < 3; x++) {
+                int neighborhood = 0;
+                for (int neighborY = y - 1; neighborY <= y + 1; neighborY++)
+                    for (int neighborX = x - 1; neighborX <= x + 1; neighborX++)
+                        if (neighborX != x || neighborY != y)
+                            neighborhood += rule.weightOf(cells[neighborY * 4 + neighborX]);
+                next[(y - 1) * 2 + x - 1] = leaves[rule.next(cells[y * 4 + x], neighborhood)];
+            }
+        return join(next[0], next[1], next[2], next[3]);
+    }
+
+    private QuadNode advanceRecursively(final QuadNode node, final boolean fullSpeed) {
+        final QuadNode nw = node.nw;
+        final QuadNode ne = node.ne;
+        final QuadNode sw = node.sw;
+        final QuadNode se = node.se;
+
+        final QuadNode n00 = advance(nw);
+        final QuadNode n01 = advance(join(nw.ne, ne.nw, nw.se, ne.sw));
+        final QuadNode n02 = advance(ne);
+        final QuadNode n10 = advance(join(nw.sw, nw.se, sw.nw, sw.ne));
+        final QuadNode n11 = advance(join(nw.se, ne.sw, sw.ne, se.nw));
+        final QuadNode n12 = advance(join(ne.sw, ne.se, se.nw, se.ne));
+        final QuadNode n20 = advance(sw);
+        final QuadNode n21 = advance(join(sw.ne, se.nw, sw.se, se.sw));
+        final QuadNode n22 = advance(se);
+
+        if (fullSpeed)
+            return join(
+                    advance(join(n00, n01, n10, n11)),
+                    advance(join(n01, n02, n11, n12)),
+                    advance(join(n10, n11, n20, n21)),
+                    advance(join(n11, n12, n21, n22)));
+        else
+            return join(
+                    join(n00.se, n01.sw, n10.ne, n11.nw),
+                    join(n01.se, n02.sw, n11.ne, n12.nw),
+                    join(n10.se, n11.sw, n20.ne, n21.nw),
+                    join(n11.se, n12.sw, n21.ne, n22.nw));
+    }
+
+    private QuadNode join(final QuadNode nw, final QuadNode ne, final QuadNode sw, final QuadNode se) {
+        if (nw.population == 0 && ne.population == 0 && sw.population == 0 && se.population == 0)
+            return emptyNodes[nw.level + 1];
+
+        final int hash = QuadNode.hashOf(nw, ne, sw, se);
+        final int bucket = hash & (buckets.length - 1);
+        for (QuadNode node = buckets[bucket]; node != null; node = node.nextInBucket)
+            if (node.hash == hash && node.hasQuadrants(nw, ne, sw, se)) {
+                if (node != newestNode) {
+                    unlink(node);
+                    linkNewest(node);
+                }
+                return node;
+            }
+
+        final var node = new QuadNode(nw, ne, sw, se, hash);
+        node.nextInBucket = buckets[bucket];
+        buckets[bucket] = node;
+        linkNewest(node);
+        nodesCount++;
+
+        if (nodesCount > maxNodes)
+            forget(oldestNode);
+        else if (nodesCount > buckets.length - (buckets.length >>> 2))
+            rehash(buckets.length * 2);
+        return node;
+    }
+
+    private void linkNewest(final QuadNode node) {
+        node.older = newestNode;
+        node.newer = null;
+        if (newestNode != null)
+            newestNode.newer = node;
+        else
+            oldestNode = node;
+        newestNode = node;
+    }
+
+    private void unlink(final QuadNode node) {
+        if (node.older != null)
+            node.older.newer = node.newer;
+        else
+            oldestNode = node.newer;
+        if (node.newer != null)
+            node.newer.older = node.older;
+        else
+            newestNode = node.older;
+        node.older = null;
+        node.newer = null;
+    }
+
+    /**
+     * Removes the node from the canonical nodes, those still referencing it keep it alive.
+     */
+    private void forget(final QuadNode node) {
+        unlink(node);
+        final int bucket = node.hash & (buckets.length - 1);
+        if (buckets[bucket] == node)
+            buckets[bucket] = node.nextInBucket;
+        else {
+            QuadNode previous = buckets[bucket];
+            while (previous.nextInBucket != node)
+                previous = previous.nextInBucket;
+            previous.nextInBucket = node.nextInBucket;
+        }
+        node.nextInBucket = null;
+        nodesCount--;
+    }
+
+    private void rehash(final int capacity) {
+        final QuadNode[] newBuckets = new QuadNode[capacity];
+        for (QuadNode bucket : buckets)
+            while (bucket != null) {
+                final QuadNode next = bucket.nextInBucket;
+                final int newBucket = bucket.hash & (capacity - 1);
+                bucket.nextInBucket = newBuckets[newBucket];
+                newBuckets[newBucket] = bucket;
+                bucket = next;
+            }
+        buckets = newBuckets;
+    }
+}
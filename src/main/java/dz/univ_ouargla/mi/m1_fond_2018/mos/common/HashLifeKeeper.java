@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Shows a {@link HashLifeEngine} by walking its quadtree: empty nodes are skipped whole, and when
+ * {@linkplain #setZoomOut(int) zoomed out} each square stands for a node of {@code 2^zoomOut}
+ * cells a side, shaded by its population, without descending any further.
+ * <p>
+ * Nodes are immutable, so the root and the size are published together after each jump and
+ * resize, and painting reads them without waiting for a jump in progress. Changes made directly
+ * to the engine are shown from the next jump or resize.
+ */
+public final class HashLifeKeeper extends AbstractCellsManager {
+
+    private static final Color BORDER_COLOR = Color.LIGHT_GRAY;
+    private static final int SHADES_COUNT = 16;
+
+    private final Lock lock = new ReentrantLock();
+    private final HashLifeEngine engine;
+    private final Color[] palette;
+    private final Color[] shades = new Color[SHADES_COUNT + 1];
+
+    private volatile View view;
+    private volatile long generationsPerFrame = 1;
+    private volatile int zoomOut;
+
+    /**
+     * Paints each state with the color at the same index in the palette, the last color
+     * standing for any state beyond.
+     */
+    public HashLifeKeeper(@NotNull final HashLifeEngine engine, @NotNull final Color... palette) {
+        this.engine = Objects.requireNonNull(engine);
+        if (palette.length < 2)
+            throw new IllegalArgumentException("at least two colors needed");
+        this.palette = palette.clone();
+
+        for (int shade = 0; shade <= SHADES_COUNT; shade++)
+            shades[shade] = blend(palette[0], palette[1], shade / (float) SHADES_COUNT);
+
+        lock.lock();
+        try {
+            publishView();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void publishView() {
+        view = new View(engine.getRoot(), engine.getColumnsCount(), engine.getRowsCount());
+    }
+
+    private static Color blend(final Color background, final Color foreground, final float ratio) {
+        return new Color(
+                Math.round(background.getRed() + (foreground.getRed() - background.getRed()) * ratio),
+                Math.round(background.getGreen() + (foreground.getGreen() - background.getGreen()) * ratio),
+                Math.round(background.getBlue() + (foreground.getBlue() - background.getBlue()) * ratio));
+    }
+
+    @NotNull
+    public HashLifeEngine getEngine() {
+        return engine;
+    }
+
+    public long getGenerationsPerFrame() {
+        return generationsPerFrame;
+    }
+
+    public void setGenerationsPerFrame(final long generationsPerFrame) {
+        if (generationsPerFrame < 1)
+            throw new IllegalArgumentException("invalid generations per frame: " + generationsPerFrame);
+        this.generationsPerFrame = generationsPerFrame;
+    }
+
+    public int getZoomOut() {
+        return zoomOut;
+    }
+
+    /**
+     * Makes each square stand for {@code 2^zoomOut} cells a side; takes effect at the next pack.
+     */
+    public void setZoomOut(final int zoomOut) {
+        if (zoomOut < 0 || zoomOut >= Integer.SIZE - 1)
+            throw new IllegalArgumentException("invalid zoom out: " + zoomOut);
+        this.zoomOut = zoomOut;
+    }
+
+    @Override
+    public void evolve() {
+        lock.lock();
+        try {
+            engine.jump(generationsPerFrame);
+            publishView();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void pack(final Dimension size, final int cellSize, final int borderWidth) {
+        final int cellBox = cellSize + borderWidth;
+        final long columnsCount = (long) Math.max(0, (size.width - borderWidth) / cellBox) << zoomOut;
+        final long rowsCount = (long) Math.max(0, (size.height - borderWidth) / cellBox) << zoomOut;
+
+        lock.lock();
+        try {
+            engine.resize((int) Math.min(columnsCount, Integer.MAX_VALUE), (int) Math.min(rowsCount, Integer.MAX_VALUE));
+            publishView();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void paint(final Graphics2D g, final Dimension size, final int cellSize, final int borderWidth) {
+        final View current = view;
+        final QuadNode root = current.root;
+        final int columnsCount = current.columnsCount;
+        final int rowsCount = current.rowsCount;
+
+        final int zoom = zoomOut;
+        final int cellBox = cellSize + borderWidth;
+        final int columnsShown = columnsCount >>> zoom;
+        final int rowsShown = rowsCount >>> zoom;
+
+        g.setColor(palette[0]);
+        g.fillRect(0, 0, columnsShown * cellBox + borderWidth, rowsShown * cellBox + borderWidth);
+
+        if (borderWidth > 0) {
+            g.setColor(BORDER_COLOR);
+            for (int column = 0; column <= columnsShown; column++)
+                g.fillRect(column * cellBox, 0, borderWidth, rowsShown * cellBox + borderWidth);
+            for (int row = 0; row <= rowsShown; row++)
+                g.fillRect(0, row * cellBox, columnsShown * cellBox + borderWidth, borderWidth);
+        }
+
+        final long half = 1L << (root.level - 1);
+        new NodePainter(g, zoom, cellSize, borderWidth, (long) columnsShown << zoom, (long) rowsShown << zoom)
+                .paint(root, -half, -half);
+    }
+
+    private static final class View {
+
+        private final QuadNode root;
+        private final int columnsCount;
+        private final int rowsCount;
+
+        private View(final QuadNode root, final int columnsCount, final int rowsCount) {
+            this.root = root;
+            this.columnsCount = columnsCount;
+            this.rowsCount = rowsCount;
+        }
+    }
+
+    private final class NodePainter {
+
+        private final Graphics2D g;
+        private final int zoom;
+        private final int cellSize;
+        private final int borderWidth;
+        private final long columnsCount;
+        private final long rowsCount;
+
+        private NodePainter(final Graphics2D g, final int zoom, final int cellSize, final int borderWidth,
+                            final long columnsCount, final long rowsCount) {
+            this.g = g;
+            this.zoom = zoom;
+            this.cellSize = cellSize;
+            this.borderWidth = borderWidth;
+            this.columnsCount = columnsCount;
+            this.rowsCount = rowsCount;
+        }
+
+        private void paint(final QuadNode node, final long fromColumn, final long fromRow) {
+            final long length = 1L << node.level;
+            if (node.population == 0 || fromColumn >= columnsCount || fromRow >= rowsCount
+                    || fromColumn + length <= 0 || fromRow + length <= 0)
+                return;
+
+            if (node.level <= zoom) {
+                g.setColor(colorOf(node));
+                final int cellBox = cellSize + borderWidth;
+                g.fillRect((int) (fromColumn >> zoom) * cellBox + borderWidth,
+                        (int) (fromRow >> zoom) * cellBox + borderWidth, cellSize, cellSize);
+            } else {
+                final long quadrant = length >>> 1;
+                paint(node.nw, fromColumn, fromRow);
+                paint(node.ne, fromColumn + quadrant, fromRow);
+                paint(node.sw, fromColumn, fromRow + quadrant);
+                paint(node.se, fromColumn + quadrant, fromRow + quadrant);
+            }
+        }
+
+        private Color colorOf(final QuadNode node) {
+            if (node.level == 0)
+                return palette[Math.min(node.state, palette.length - 1)];
+
+            final double density = node.population / (double) (1L << (node.level * 2));
+            return shades[Math.max(1, (int) Math.ceil(density * SHADES_COUNT))];
+        }
+    }
+}
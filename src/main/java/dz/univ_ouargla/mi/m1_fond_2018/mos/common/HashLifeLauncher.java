@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+import java.awt.Color;
+import java.util.Locale;
+import java.util.Random;
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs a life-like rule on a random soup with {@link HashLifeEngine}: headless when a number of
+ * generations is given, in a window otherwise.
+ */
+public final class HashLifeLauncher {
+
+    private static final double DEFAULT_DENSITY = 0.3;
+
+    public static void main(final String... arguments) {
+        if (arguments.length < 3) {
+            System.err.println("usage: HashLifeLauncher <rule: life|brain|B3/S23...> <columns> <rows> [generations] [density] [seed]");
+            System.exit(1);
+        }
+
+        final RuleTable rule = ruleOf(arguments[0]);
+        final int columnsCount = Integer.parseInt(arguments[1]);
+        final int rowsCount = Integer.parseInt(arguments[2]);
+        final double density = arguments.length > 4 ? Double.parseDouble(arguments[4]) : DEFAULT_DENSITY;
+        final long seed = arguments.length > 5 ? Long.parseLong(arguments[5]) : System.nanoTime();
+
+        final var engine = new HashLifeEngine(rule);
+        engine.resize(columnsCount, rowsCount);
+        seed(engine, seed, density);
+
+        if (arguments.length > 3) {
+            final long generations = Long.parseLong(arguments[3]);
+            final long start = System.nanoTime();
+            engine.jump(generations);
+            final long elapsed = System.nanoTime() - start;
+
+            System.out.printf("rule: %s, soup: %d x %d, seed: %d%n", rule.getName(), columnsCount, rowsCount, seed);
+            System.out.printf("generations: %d in %.3f ms%n", engine.getGeneration(), elapsed / 1e6);
+            System.out.printf("population: %d, nodes: %d%n", engine.getPopulation(), engine.getNodesCount());
+        } else {
+            final var keeper = new HashLifeKeeper(engine, Color.WHITE, Color.BLACK, Color.GRAY);
+            final var grid = new BasicCellGrid(keeper);
+            final var frame = new DashboardFrame("HashLife: " + rule.getName(), new CellGridDashboard(grid), grid);
+            SwingUtilities.invokeLater(frame::launch);
+        }
+    }
+
+    private static RuleTable ruleOf(final String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "life":
+                return RuleTable.LIFE;
+            case "brain":
+                return RuleTable.BRIANS_BRAIN;
+            default:
+                return RuleTable.parse(name);
+        }
+    }
+
+    private static void seed(final HashLifeEngine engine, final long seed, final double density) {
+        final Random random = new Random(seed);
+        for (int row = 0; row < engine.getRowsCount(); row++)
+            for (int column = 0; column < engine.getColumnsCount(); column++)
+                if (random.nextDouble() < density)
+                    engine.setState(column, row, 1);
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Fixed size histogram of durations in nanoseconds: each power of two is split in
+ * {@value #SUB_BUCKETS} buckets, so percentiles are known within 12.5% whatever the magnitude,
+ * and recording a value never allocates nor locks.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKETS_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKETS_BITS;
+    private static final int BUCKETS_COUNT = (Long.SIZE - SUB_BUCKETS_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(final long nanos) {
+        final long value = Math.max(nanos, 0);
+        buckets.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value))
+            currentMax = max.get();
+    }
+
+    private static int bucketOf(final long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+
+        final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKETS_BITS;
+        return ((shift + 1) << SUB_BUCKETS_BITS) + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    private static long highestValueIn(final int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+
+        final int shift = (bucket >>> SUB_BUCKETS_BITS) - 1;
+        final long subBucket = (bucket & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        final long currentCount = count.get();
+        return currentCount == 0 ? 0 : (double) total.get() / currentCount;
+    }
+
+    /**
+     * Returns the highest value of the bucket holding the given percentile, never more than the maximum.
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if (percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("invalid percentile: " + percentile);
+
+        final long currentCount = count.get();
+        final long rank = Math.max(1, (long) Math.ceil(currentCount * percentile / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS_COUNT; bucket++) {
+            seen += buckets.get(bucket);
+            if (seen >= rank)
+                return Math.min(highestValueIn(bucket), max.get());
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS_COUNT; bucket++)
+            buckets.set(bucket, 0);
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    @NotNull
+    public Summary summary() {
+        return new Summary(this);
+    }
+
+    /**
+     * Immutable view of a histogram in microseconds, mapped to a composite type by JMX.
+     */
+    public static final class Summary {
+
+        private static final double NANOS_PER_MICRO = 1e3;
+
+        private final long count;
+        private final double meanMicros;
+        private final double p50Micros;
+        private final double p90Micros;
+        private final double p99Micros;
+        private final double maxMicros;
+
+        private Summary(final LatencyHistogram histogram) {
+            this.count = histogram.getCount();
+            this.meanMicros = histogram.getMean() / NANOS_PER_MICRO;
+            this.p50Micros = histogram.getValueAtPercentile(50) / NANOS_PER_MICRO;
+            this.p90Micros = histogram.getValueAtPercentile(90) / NANOS_PER_MICRO;
+            this.p99Micros = histogram.getValueAtPercentile(99) / NANOS_PER_MICRO;
+            this.maxMicros = histogram.getMax() / NANOS_PER_MICRO;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMicros() {
+            return meanMicros;
+        }
+
+        public double getP50Micros() {
+            return p50Micros;
+        }
+
+        public double getP90Micros() {
+            return p90Micros;
+        }
+
+        public double getP99Micros() {
+            return p99Micros;
+        }
+
+        public double getMaxMicros() {
+            return maxMicros;
+        }
+
+        @Override
+        @NotNull
+        public String toString() {
+            return String.format("%.0f µs (p99 %.0f µs, max %.0f µs)", meanMicros, p99Micros, maxMicros);
+        }
+    }
+}
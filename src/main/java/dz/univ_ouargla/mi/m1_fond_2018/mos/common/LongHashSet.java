@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing set of non negative longs, without boxing.
+ */
+public final class LongHashSet {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final long FREE = -1;
+
+    private long[] keys;
+    private int size;
+
+    public LongHashSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongHashSet(final int expectedSize) {
+        this.keys = newKeys(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(final int expectedSize) {
+        return Math.max(DEFAULT_CAPACITY, Integer.highestOneBit(Math.max(expectedSize, 1) * 2 - 1) * 2);
+    }
+
+    private static long[] newKeys(final int capacity) {
+        final long[] keys = new long[capacity];
+        Arrays.fill(keys, FREE);
+        return keys;
+    }
+
+    private static int hash(final long key) {
+        final long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ mixed >>> 32);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(final long key) {
+        final int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            final long current = keys[slot];
+            if (current == key)
+                return true;
+            else if (current == FREE)
+                return false;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the key was not already in this set.
+     */
+    public boolean add(final long key) {
+        if (key < 0)
+            throw new IllegalArgumentException("negative key: " + key);
+
+        final int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            final long current = keys[slot];
+            if (current == key)
+                return false;
+            else if (current == FREE) {
+                keys[slot] = key;
+                if (++size * 2 > keys.length)
+                    rehash(keys.length * 2);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if the key was in this set. Costs as much as adding it, so that emptying
+     * a set key by key costs in proportion to its size rather than to its capacity.
+     */
+    public boolean remove(final long key) {
+        final int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != key) {
+            if (keys[slot] == FREE)
+                return false;
+            slot = (slot + 1) & mask;
+        }
+
+        // moves back the following keys of the cluster that would no longer be found past the hole
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+            final int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                hole = next;
+            }
+        }
+        keys[hole] = FREE;
+        size--;
+        return true;
+    }
+
+    private void rehash(final int capacity) {
+        final long[] oldKeys = keys;
+        final long[] newKeys = newKeys(capacity);
+        final int mask = capacity - 1;
+        for (final long key : oldKeys)
+            if (key != FREE) {
+                int slot = hash(key) & mask;
+                while (newKeys[slot] != FREE)
+                    slot = (slot + 1) & mask;
+                newKeys[slot] = key;
+            }
+        keys = newKeys;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, FREE);
+            size = 0;
+        }
+    }
+}
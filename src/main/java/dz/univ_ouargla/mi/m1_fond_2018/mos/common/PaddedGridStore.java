@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Stores cells row by row in a single array surrounded by a one cell halo of zeros, so that the
+ * eight neighbors of any cell inside the {@linkplain #setBounds(int, int) bounds} can be read
+ * at fixed offsets of its {@linkplain #indexOf(int, int) index}, without any bounds check.
+ * <p>
+ * Cells hidden by a shrink are kept, but those just outside the new bounds are set aside while
+ * they form the halo: they read as zero until the bounds move away from them.
+ * <p>
+ * The cells array is copied on write, as {@link FlatGridStore} one is.
+ */
+public final class PaddedGridStore implements GridStore {
+
+    private static final int MAX_CELLS = Integer.MAX_VALUE - 8;
+    private static final int NO_BOUNDS = -1;
+
+    private byte[] cells = new byte[4];
+    private int columnsCapacity;
+    private int rowsCapacity;
+    private boolean shared;
+
+    private int columnsBound = NO_BOUNDS;
+    private int rowsBound = NO_BOUNDS;
+    private byte[] hiddenHalo = new byte[0];
+
+    @Override
+    public void ensureCapacity(final int columnsCount, final int rowsCount) {
+        if (columnsCount < 0 || rowsCount < 0)
+            throw new IllegalArgumentException("invalid size: " + columnsCount + " x " + rowsCount);
+
+        if (columnsCount > columnsCapacity || rowsCount > rowsCapacity) {
+            int newColumnsCapacity = grow(columnsCapacity, columnsCount);
+            int newRowsCapacity = grow(rowsCapacity, rowsCount);
+
+            if (paddedCellsOf(newColumnsCapacity, newRowsCapacity) > MAX_CELLS) {
+                newColumnsCapacity = Math.max(columnsCapacity, columnsCount);
+                newRowsCapacity = Math.max(rowsCapacity, rowsCount);
+            }
+
+            if (paddedCellsOf(newColumnsCapacity, newRowsCapacity) > MAX_CELLS)
+                throw new IllegalArgumentException("too many cells: " + columnsCount + " x " + rowsCount);
+
+            relayout(newColumnsCapacity, newRowsCapacity);
+        }
+    }
+
+    private static int grow(final int capacity, final int needed) {
+        if (needed <= capacity)
+            return capacity;
+        else
+            return Math.max(needed, capacity + (capacity >> 1));
+    }
+
+    private static long paddedCellsOf(final int columnsCapacity, final int rowsCapacity) {
+        return (columnsCapacity + 2L) * (rowsCapacity + 2L);
+    }
+
+    private void relayout(final int newColumnsCapacity, final int newRowsCapacity) {
+        final int stride = getStride();
+        final int newStride = newColumnsCapacity + 2;
+        final int copiedColumns = Math.min(columnsCapacity, newColumnsCapacity);
+        final int copiedRows = Math.min(rowsCapacity, newRowsCapacity);
+
+        final byte[] newCells = new byte[(int) paddedCellsOf(newColumnsCapacity, newRowsCapacity)];
+        for (int row = 1; row <= copiedRows; row++)
+            System.arraycopy(cells, row * stride + 1, newCells, row * newStride + 1, copiedColumns);
+
+        cells = newCells;
+        shared = false;
+        columnsCapacity = newColumnsCapacity;
+        rowsCapacity = newRowsCapacity;
+    }
+
+    /**
+     * Releases the cells outside the given area, including those set aside for the halo,
+     * and narrows the bounds to the remaining capacity.
+     */
+    @Override
+    public void trim(final int columnsCount, final int rowsCount) {
+        final int newColumnsCapacity = Math.min(columnsCapacity, columnsCount);
+        final int newRowsCapacity = Math.min(rowsCapacity, rowsCount);
+        if (newColumnsCapacity < columnsCapacity || newRowsCapacity < rowsCapacity) {
+            final int trimmedColumnsBound = Math.min(columnsBound, newColumnsCapacity);
+            final int trimmedRowsBound = Math.min(rowsBound, newRowsCapacity);
+            clearBounds();
+            relayout(newColumnsCapacity, newRowsCapacity);
+            if (trimmedColumnsBound != NO_BOUNDS)
+                setBounds(trimmedColumnsBound, trimmedRowsBound);
+        }
+    }
+
+    @Override
+    public long getAllocatedCells() {
+        return (long) columnsCapacity * rowsCapacity;
+    }
+
+    public int getStride() {
+        return columnsCapacity + 2;
+    }
+
+    /**
+     * Returns the index of the given cell in the {@linkplain #getCells() cells array},
+     * where any of its neighbors sits at one of the offsets {@code ±1}, {@code ±stride}
+     * and {@code ±stride ± 1}.
+     */
+    public int indexOf(final int column, final int row) {
+        return (row + 1) * getStride() + column + 1;
+    }
+
+    /**
+     * Returns the cells array itself, laid out as {@link #indexOf(int, int)} tells. It may only be
+     * written to after {@link #prepareConcurrentWrites(GridStore, int, int)}, and is replaced
+     * by any call changing the capacity.
+     */
+    @NotNull
+    public byte[] getCells() {
+        return cells;
+    }
+
+    @Override
+    public byte get(final int column, final int row) {
+        return cells[indexOf(column, row)];
+    }
+
+    @Override
+    public void set(final int column, final int row, final byte data) {
+        if (shared)
+            unshare();
+        cells[indexOf(column, row)] = data;
+    }
+
+    public boolean isBoundedTo(final int columnsCount, final int rowsCount) {
+        return columnsBound == columnsCount && rowsBound == rowsCount;
+    }
+
+    /**
+     * Zeroes the halo around the given area, which must fit in the capacity, setting aside the
+     * cells it hides, and gives back the cells the previous halo had set aside.
+     */
+    public void setBounds(final int columnsCount, final int rowsCount) {
+        if (columnsCount < 0 || rowsCount < 0 || columnsCount > columnsCapacity || rowsCount > rowsCapacity)
+            throw new IllegalArgumentException("invalid bounds: " + columnsCount + " x " + rowsCount);
+
+        if (!isBoundedTo(columnsCount, rowsCount)) {
+            clearBounds();
+            if (shared)
+                unshare();
+
+            final byte[] halo = new byte[columnsCount + rowsCount + 1];
+            int i = 0;
+            for (int row = 0; row <= rowsCount; row++)
+                halo[i++] = hide(columnsCount, row);
+            for (int column = 0; column < columnsCount; column++)
+                halo[i++] = hide(column, rowsCount);
+
+            hiddenHalo = halo;
+            columnsBound = columnsCount;
+            rowsBound = rowsCount;
+        }
+    }
+
+    private byte hide(final int column, final int row) {
+        final int index = indexOf(column, row);
+        final byte data = cells[index];
+        cells[index] = 0;
+        return data;
+    }
+
+    private void clearBounds() {
+        if (columnsBound != NO_BOUNDS) {
+            if (shared)
+                unshare();
+
+            int i = 0;
+            for (int row = 0; row <= rowsBound; row++)
+                cells[indexOf(columnsBound, row)] = hiddenHalo[i++];
+            for (int column = 0; column < columnsBound; column++)
+                cells[indexOf(column, rowsBound)] = hiddenHalo[i++];
+
+            hiddenHalo = new byte[0];
+            columnsBound = NO_BOUNDS;
+            rowsBound = NO_BOUNDS;
+        }
+    }
+
+    @Override
+    public void prepareConcurrentWrites(@NotNull final GridStore model, final int columnsCount, final int rowsCount) {
+        ensureCapacity(columnsCount, rowsCount);
+        unshare();
+    }
+
+    private void unshare() {
+        if (shared) {
+            cells = cells.clone();
+            shared = false;
+        }
+    }
+
+    @Override
+    public void forEachNonZero(final int columnsCount, final int rowsCount, @NotNull final CellVisitor visitor) {
+        final int toColumn = Math.min(columnsCount, columnsCapacity);
+        final int toRow = Math.min(rowsCount, rowsCapacity);
+        for (int row = 0; row < toRow; row++) {
+            final int rowIndex = indexOf(0, row);
+            for (int column = 0; column < toColumn; column++) {
+                final byte data = cells[rowIndex + column];
+                if (data != 0)
+                    visitor.visit(column, row, data);
+            }
+        }
+    }
+
+    @NotNull
+    @Override
+    public PaddedGridStore fork() {
+        final var fork = new PaddedGridStore();
+        fork.share(this);
+        return fork;
+    }
+
+    private void share(final PaddedGridStore source) {
+        source.shared = true;
+        cells = source.cells;
+        columnsCapacity = source.columnsCapacity;
+        rowsCapacity = source.rowsCapacity;
+        shared = true;
+        columnsBound = source.columnsBound;
+        rowsBound = source.rowsBound;
+        hiddenHalo = source.hiddenHalo.clone();
+    }
+
+    @Override
+    public void copyFrom(@NotNull final GridStore source, final int columnsCount, final int rowsCount) {
+        if (source instanceof PaddedGridStore)
+            share((PaddedGridStore) source);
+        else {
+            clearBounds();
+            GridStore.super.copyFrom(source, columnsCount, rowsCount);
+        }
+    }
+}
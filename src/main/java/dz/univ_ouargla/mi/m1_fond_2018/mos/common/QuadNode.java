@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+/**
+ * Immutable square of {@code 2^level} cells a side, made of four quadrants one level below,
+ * or a single cell at level zero. The hash only depends on the cells, while {@link HashLifeEngine}
+ * compares nodes by the identity of their quadrants, which is enough once they are canonical.
+ */
+final class QuadNode {
+
+    final int level;
+    final byte state;
+    final QuadNode nw;
+    final QuadNode ne;
+    final QuadNode sw;
+    final QuadNode se;
+    final long population;
+    final int hash;
+
+    /**
+     * The center of this node, {@code 2^resultStepLog} generations later.
+     */
+    QuadNode result;
+    int resultStepLog = -1;
+
+    /**
+     * Links of the canonical nodes table: next node of the same bucket, and the neighbors
+     * in the least recently used order.
+     */
+    QuadNode nextInBucket;
+    QuadNode older;
+    QuadNode newer;
+
+    QuadNode(final byte state) {
+        this.level = 0;
+        this.state = state;
+        this.nw = null;
+        this.ne = null;
+        this.sw = null;
+        this.se = null;
+        this.population = state == 0 ? 0 : 1;
+        this.hash = mix(state + 1);
+    }
+
+    QuadNode(final QuadNode nw, final QuadNode ne, final QuadNode sw, final QuadNode se, final int hash) {
+        this.level = nw.level + 1;
+        this.state = 0;
+        this.nw = nw;
+        this.ne = ne;
+        this.sw = sw;
+        this.se = se;
+        this.population = nw.population + ne.population + sw.population + se.population;
+        this.hash = hash;
+    }
+
+    static int hashOf(final QuadNode nw, final QuadNode ne, final QuadNode sw, final QuadNode se) {
+        return mix(mix(mix(nw.hash * 31 + ne.hash) * 31 + sw.hash) * 31 + se.hash);
+    }
+
+    private static int mix(final int value) {
+        final int mixed = value * 0x9E3779B1;
+        return mixed ^ mixed >>> 16;
+    }
+
+    boolean hasQuadrants(final QuadNode nw, final QuadNode ne, final QuadNode sw, final QuadNode se) {
+        return this.nw == nw && this.ne == ne && this.sw == sw && this.se == se;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+/**
+ * Decides when a {@link GridStore} should {@linkplain GridStore#trim(int, int) release} the memory
+ * of the cells hidden by a shrink: hidden cells are kept, so that they show up again when the grid
+ * grows back, until they take more than the given number of cells.
+ */
+public final class RetentionPolicy {
+
+    public static final RetentionPolicy KEEP_ALL = new RetentionPolicy(Long.MAX_VALUE);
+    public static final RetentionPolicy KEEP_NONE = new RetentionPolicy(0);
+
+    private final long maxHiddenCells;
+
+    private RetentionPolicy(final long maxHiddenCells) {
+        this.maxHiddenCells = maxHiddenCells;
+    }
+
+    public static RetentionPolicy keepAtMost(final long maxHiddenCells) {
+        if (maxHiddenCells < 0)
+            throw new IllegalArgumentException("invalid hidden cells count: " + maxHiddenCells);
+        return new RetentionPolicy(maxHiddenCells);
+    }
+
+    public long getMaxHiddenCells() {
+        return maxHiddenCells;
+    }
+
+    public boolean shouldTrim(final long allocatedCells, final long liveCells) {
+        return allocatedCells - liveCells > maxHiddenCells;
+    }
+
+    @Override
+    public String toString() {
+        return "RetentionPolicy{maxHiddenCells=" + maxHiddenCells + '}';
+    }
+}
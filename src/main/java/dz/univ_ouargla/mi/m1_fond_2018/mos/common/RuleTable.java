@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Cellular automaton rule compiled to lookup tables: each neighbor weighs on the cell according to
+ * its state, and the next state is read from a table indexed by the cell state and the sum of the
+ * weights of its eight neighbors.
+ * <p>
+ * Rules are either {@linkplain #compile(String, int, IntPredicate, IntUnaryOperator, Transition)
+ * compiled} from a transition function, or {@linkplain #parse(String) parsed} from the
+ * {@code B/S} notation of life-like rules, extended with {@code /Cn} for the "Generations" family.
+ */
+public final class RuleTable {
+
+    public static final int MAX_STATES = 1 << 7;
+    public static final int NEIGHBORS_COUNT = 8;
+
+    /**
+     * Conway's Game of Life: a dead cell with 3 live neighbors is born, a live one with 2 or 3 survives.
+     */
+    public static final RuleTable LIFE = parse("B3/S23");
+
+    /**
+     * Brian's Brain: a dead cell with 2 firing neighbors fires, a firing cell is dying the next
+     * generation and dead the one after.
+     */
+    public static final RuleTable BRIANS_BRAIN = parse("B2/S/C3");
+
+    @FunctionalInterface
+    public interface Transition {
+
+        int next(final int state, final int neighborhood);
+    }
+
+    private final String name;
+    private final int statesCount;
+    private final boolean[] validStates;
+    private final byte[] weights;
+    private final int neighborhoodsCount;
+    private final byte[] transitions;
+
+    private RuleTable(final String name, final int statesCount, final boolean[] validStates,
+                      final byte[] weights, final int neighborhoodsCount, final byte[] transitions) {
+        this.name = name;
+        this.statesCount = statesCount;
+        this.validStates = validStates;
+        this.weights = weights;
+        this.neighborhoodsCount = neighborhoodsCount;
+        this.transitions = transitions;
+    }
+
+    /**
+     * Tabulates the given transition for every valid state and every neighborhood, the neighborhood
+     * being the sum of the neighbors weights. The transition is never called for invalid states,
+     * which are left unchanged by the rule.
+     */
+    @NotNull
+    public static RuleTable compile(@NotNull final String name, final int statesCount,
+                                    @NotNull final IntPredicate validState,
+                                    @NotNull final IntUnaryOperator weightOf,
+                                    @NotNull final Transition transition) {
+        Objects.requireNonNull(name);
+        if (statesCount < 1 || statesCount > MAX_STATES)
+            throw new IllegalArgumentException("invalid states count: " + statesCount);
+
+        final boolean[] validStates = new boolean[statesCount];
+        final byte[] weights = new byte[statesCount];
+        int maxWeight = 0;
+        for (int state = 0; state < statesCount; state++) {
+            validStates[state] = validState.test(state);
+            final int weight = validStates[state] ? weightOf.applyAsInt(state) : 0;
+            if (weight < 0 || weight > Byte.MAX_VALUE / NEIGHBORS_COUNT)
+                throw new IllegalArgumentException("invalid weight: " + weight + " for state: " + state);
+            weights[state] = (byte) weight;
+            maxWeight = Math.max(maxWeight, weight);
+        }
+
+        final int neighborhoodsCount = maxWeight * NEIGHBORS_COUNT + 1;
+        final byte[] transitions = new byte[statesCount * neighborhoodsCount];
+        for (int state = 0; state < statesCount; state++)
+            for (int neighborhood = 0; neighborhood < neighborhoodsCount; neighborhood++) {
+                final int next = validStates[state] ? transition.next(state, neighborhood) : state;
+                if (next < 0 || next >= statesCount || !validStates[next] && validStates[state])
+                    throw new IllegalArgumentException("invalid transition: " + state + " -> " + next
+                            + " for neighborhood: " + neighborhood);
+                transitions[state * neighborhoodsCount + neighborhood] = (byte) next;
+            }
+
+        return new RuleTable(name, statesCount, validStates, weights, neighborhoodsCount, transitions);
+    }
+
+    /**
+     * Parses a rule such as {@code B3/S23}: state 1 is alive and counts as a neighbor, a dead cell
+     * is born when its live neighbors count is one of the {@code B} digits and a live cell survives
+     * when it is one of the {@code S} digits. With {@code /Cn}, a live cell which does not survive
+     * goes through the dying states 2 to n - 1 before being dead again.
+     */
+    @NotNull
+    public static RuleTable parse(@NotNull final String rule) {
+        final String[] parts = rule.toUpperCase(Locale.ROOT).split("/", -1);
+        if (parts.length < 2 || parts.length > 3 || !parts[0].startsWith("B") || !parts[1].startsWith("S"))
+            throw new IllegalArgumentException("invalid rule: " + rule);
+
+        final boolean[] born = countsOf(parts[0].substring(1), rule);
+        final boolean[] survives = countsOf(parts[1].substring(1), rule);
+        final int statesCount;
+        if (parts.length == 3) {
+            if (!parts[2].startsWith("C"))
+                throw new IllegalArgumentException("invalid rule: " + rule);
+            try {
+                statesCount = Integer.parseInt(parts[2].substring(1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid rule: " + rule, e);
+            }
+        } else
+            statesCount = 2;
+
+        return compile(rule, statesCount, state -> true, state -> state == 1 ? 1 : 0, (state, neighborhood) -> {
+            if (state == 0)
+                return born[neighborhood] ? 1 : 0;
+            else if (state == 1 && survives[neighborhood])
+                return 1;
+            else
+                return (state + 1) % statesCount;
+        });
+    }
+
+    private static boolean[] countsOf(final String digits, final String rule) {
+        final boolean[] counts = new boolean[NEIGHBORS_COUNT + 1];
+        for (int i = 0; i < digits.length(); i++) {
+            final int count = digits.charAt(i) - '0';
+            if (count < 0 || count > NEIGHBORS_COUNT)
+                throw new IllegalArgumentException("invalid rule: " + rule);
+            counts[count] = true;
+        }
+        return counts;
+    }
+
+    @NotNull
+    public String getName() {
+        return name;
+    }
+
+    public int getStatesCount() {
+        return statesCount;
+    }
+
+    public boolean isValid(final int state) {
+        return state >= 0 && state < statesCount && validStates[state];
+    }
+
+    public int weightOf(final int state) {
+        return weights[state];
+    }
+
+    public int next(final int state, final int neighborhood) {
+        return transitions[state * neighborhoodsCount + neighborhood];
+    }
+
+    /**
+     * Returns the neighbors weights, indexed by state.
+     */
+    @NotNull
+    byte[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * Returns the transitions table, indexed by {@code state * neighborhoodsCount + neighborhood}.
+     */
+    @NotNull
+    byte[] getTransitions() {
+        return transitions;
+    }
+
+    int getNeighborhoodsCount() {
+        return neighborhoodsCount;
+    }
+
+    @Override
+    public String toString() {
+        return "RuleTable{" + name + '}';
+    }
+}
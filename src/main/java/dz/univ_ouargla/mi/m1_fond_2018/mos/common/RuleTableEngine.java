@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Runs any {@link RuleTable} on double buffered {@link GridStore}s, cells outside the grid being
+ * in state zero. With {@link PaddedGridStore}s, the default, each cell costs eight weight lookups
+ * and one transition lookup, without any branch. Instances are not thread safe.
+ */
+public final class RuleTableEngine implements CellsEngine {
+
+    private static final int[] NEIGHBORS_COLUMNS = {-1, 0, 1, -1, 1, -1, 0, 1};
+    private static final int[] NEIGHBORS_ROWS = {-1, -1, -1, 0, 0, 1, 1, 1};
+
+    private final RuleTable rule;
+
+    private GridStore front;
+    private GridStore back;
+
+    private int columnsCount;
+    private int rowsCount;
+    private long generation;
+
+    public RuleTableEngine(@NotNull final RuleTable rule) {
+        this(rule, PaddedGridStore::new);
+    }
+
+    public RuleTableEngine(@NotNull final RuleTable rule, final int columnsCount, final int rowsCount) {
+        this(rule);
+        resize(columnsCount, rowsCount);
+    }
+
+    public RuleTableEngine(@NotNull final RuleTable rule, @NotNull final Supplier<? extends GridStore> storeFactory) {
+        this.rule = Objects.requireNonNull(rule);
+        this.front = Objects.requireNonNull(storeFactory.get());
+        this.back = Objects.requireNonNull(storeFactory.get());
+    }
+
+    @NotNull
+    public RuleTable getRule() {
+        return rule;
+    }
+
+    public void resize(final int columnsCount, final int rowsCount) {
+        if (columnsCount < 0 || rowsCount < 0)
+            throw new IllegalArgumentException("invalid size: " + columnsCount + " x " + rowsCount);
+
+        front.ensureCapacity(columnsCount, rowsCount);
+        back.ensureCapacity(columnsCount, rowsCount);
+
+        // cells leaving the grid are no longer evolved, so both buffers must agree on them
+        for (int row = 0; row < this.rowsCount; row++)
+            for (int column = row < rowsCount ? columnsCount : 0; column < this.columnsCount; column++)
+                back.set(column, row, front.get(column, row));
+
+        this.columnsCount = columnsCount;
+        this.rowsCount = rowsCount;
+        if (front instanceof PaddedGridStore)
+            ((PaddedGridStore) front).setBounds(columnsCount, rowsCount);
+        if (back instanceof PaddedGridStore)
+            ((PaddedGridStore) back).setBounds(columnsCount, rowsCount);
+    }
+
+    @Override
+    public int getColumnsCount() {
+        return columnsCount;
+    }
+
+    @Override
+    public int getRowsCount() {
+        return rowsCount;
+    }
+
+    @Override
+    public long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public int getState(final int column, final int row) {
+        if (column < 0 || row < 0 || column >= columnsCount || row >= rowsCount)
+            return 0;
+        else
+            return front.get(column, row);
+    }
+
+    @Override
+    public void setState(final int column, final int row, final int state) {
+        if (column < 0 || row < 0 || column >= columnsCount || row >= rowsCount)
+            throw new IndexOutOfBoundsException("for column: " + column + " and row: " + row);
+        if (!rule.isValid(state))
+            throw new IllegalArgumentException("invalid state: " + state);
+
+        front.set(column, row, (byte) state);
+    }
+
+    @Override
+    public long count(final int state) {
+        if (!rule.isValid(state))
+            return 0;
+
+        final long[] counts = new long[rule.getStatesCount()];
+        front.forEachNonZero(columnsCount, rowsCount, (column, row, data) -> counts[data]++);
+        if (state == 0) {
+            long nonZero = 0;
+            for (final long count : counts)
+                nonZero += count;
+            return (long) columnsCount * rowsCount - nonZero;
+        } else
+            return counts[state];
+    }
+
+    @Override
+    public void step() {
+        if (front instanceof PaddedGridStore && back instanceof PaddedGridStore
+                && ((PaddedGridStore) front).getStride() == ((PaddedGridStore) back).getStride()) {
+            back.prepareConcurrentWrites(front, columnsCount, rowsCount);
+            evolvePadded((PaddedGridStore) front, (PaddedGridStore) back);
+        } else
+            evolve();
+
+        final GridStore completed = back;
+        back = front;
+        front = completed;
+        generation++;
+    }
+
+    private void evolvePadded(final PaddedGridStore front, final PaddedGridStore back) {
+        final byte[] cells = front.getCells();
+        final byte[] nextCells = back.getCells();
+        final byte[] weights = rule.getWeights();
+        final byte[] transitions = rule.getTransitions();
+        final int neighborhoodsCount = rule.getNeighborhoodsCount();
+        final int stride = front.getStride();
+        for (int row = 0; row < rowsCount; row++) {
+            final int fromIndex = front.indexOf(0, row);
+            final int toIndex = fromIndex + columnsCount;
+            for (int index = fromIndex; index < toIndex; index++) {
+                final int neighborhood = weights[cells[index - stride - 1]]
+                        + weights[cells[index - stride]]
+                        + weights[cells[index - stride + 1]]
+                        + weights[cells[index - 1]]
+                        + weights[cells[index + 1]]
+                        + weights[cells[index + stride - 1]]
+                        + weights[cells[index + stride]]
+                        + weights[cells[index + stride + 1]];
+                nextCells[index] = transitions[cells[index] * neighborhoodsCount + neighborhood];
+            }
+        }
+    }
+
+    private void evolve() {
+        for (int row = 0; row < rowsCount; row++)
+            for (int column = 0; column < columnsCount; column++) {
+                int neighborhood = 0;
+                for (int i = 0; i < NEIGHBORS_COLUMNS.length; i++)
+                    neighborhood += rule.weightOf(getState(column + NEIGHBORS_COLUMNS[i], row + NEIGHBORS_ROWS[i]));
+                back.set(column, row, (byte) rule.next(front.get(column, row), neighborhood));
+            }
+    }
+}
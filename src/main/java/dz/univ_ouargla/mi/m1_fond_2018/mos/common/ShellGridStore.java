@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+import java.util.Arrays;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Stores cells on concentric square shells: growing the grid only appends chunks,
+ * existing cells never move.
+ * <p>
+ * Chunks are copied on write: {@link #fork()} and {@link #copyFrom(GridStore, int, int)} only share
+ * the chunks, which are duplicated by the first store writing to them.
+ */
+public final class ShellGridStore implements GridStore {
+
+    public static final int DEFAULT_CELLS_PER_CHUNK = 1 << 16;
+
+    private final int cellsPerChunk;
+
+    private byte[][] chunks = new byte[0][];
+    private boolean[] sharedChunks = new boolean[0];
+
+    public ShellGridStore() {
+        this(DEFAULT_CELLS_PER_CHUNK);
+    }
+
+    public ShellGridStore(final int cellsPerChunk) {
+        if (cellsPerChunk < 1)
+            throw new IllegalArgumentException("invalid chunk size: " + cellsPerChunk);
+        this.cellsPerChunk = cellsPerChunk;
+    }
+
+    @Override
+    public void ensureCapacity(final int columnsCount, final int rowsCount) {
+        final var longestDimension = Math.max(columnsCount, rowsCount);
+        ensureCellsAtLeast(longestDimension * longestDimension);
+    }
+
+    private void ensureCellsAtLeast(final int minimumCells) {
+        final int neededChunks = (int) ((minimumCells + (long) cellsPerChunk - 1) / cellsPerChunk);
+        final int availableChunks = chunks.length;
+        if (availableChunks < neededChunks) {
+            final byte[][] newChunks = Arrays.copyOf(chunks, neededChunks);
+            for (int i = availableChunks; i < neededChunks; i++)
+                newChunks[i] = new byte[cellsPerChunk];
+            chunks = newChunks;
+            sharedChunks = Arrays.copyOf(sharedChunks, neededChunks);
+        }
+    }
+
+    @Override
+    public void trim(final int columnsCount, final int rowsCount) {
+        final long longestDimension = Math.max(columnsCount, rowsCount);
+        final int neededChunks = (int) ((longestDimension * longestDimension + cellsPerChunk - 1) / cellsPerChunk);
+        if (chunks.length > neededChunks) {
+            chunks = Arrays.copyOf(chunks, neededChunks);
+            sharedChunks = Arrays.copyOf(sharedChunks, neededChunks);
+        }
+    }
+
+    @Override
+    public long getAllocatedCells() {
+        return (long) chunks.length * cellsPerChunk;
+    }
+
+    @Override
+    public byte get(final int column, final int row) {
+        final int index = indexOf(column, row);
+        return chunks[index / cellsPerChunk][index % cellsPerChunk];
+    }
+
+    @Override
+    public void set(final int column, final int row, final byte data) {
+        final int index = indexOf(column, row);
+        final int chunk = index / cellsPerChunk;
+        if (sharedChunks[chunk])
+            unshare(chunk);
+        chunks[chunk][index % cellsPerChunk] = data;
+    }
+
+    private void unshare(final int chunk) {
+        chunks[chunk] = chunks[chunk].clone();
+        sharedChunks[chunk] = false;
+    }
+
+    @Override
+    public void prepareConcurrentWrites(@NotNull final GridStore model, final int columnsCount, final int rowsCount) {
+        ensureCapacity(columnsCount, rowsCount);
+        for (int chunk = 0; chunk < chunks.length; chunk++)
+            if (sharedChunks[chunk])
+                unshare(chunk);
+    }
+
+    @NotNull
+    @Override
+    public ShellGridStore fork() {
+        final var fork = new ShellGridStore(cellsPerChunk);
+        fork.share(this);
+        return fork;
+    }
+
+    private void share(final ShellGridStore source) {
+        final int sourceChunksCount = source.chunks.length;
+        Arrays.fill(source.sharedChunks, true);
+        if (chunks.length < sourceChunksCount) {
+            chunks = Arrays.copyOf(chunks, sourceChunksCount);
+            sharedChunks = Arrays.copyOf(sharedChunks, sourceChunksCount);
+        }
+        System.arraycopy(source.chunks, 0, chunks, 0, sourceChunksCount);
+        Arrays.fill(sharedChunks, 0, sourceChunksCount, true);
+    }
+
+    @Override
+    public void copyFrom(@NotNull final GridStore source, final int columnsCount, final int rowsCount) {
+        if (source instanceof ShellGridStore && ((ShellGridStore) source).cellsPerChunk == cellsPerChunk)
+            share((ShellGridStore) source);
+        else
+            GridStore.super.copyFrom(source, columnsCount, rowsCount);
+    }
+
+    private static int indexOf(final int column, final int row) {
+        if (column < row)
+            return row * row + row * 2 - column;
+        else if (column > row)
+            return column * column + row;
+        else
+            return column * column + column;
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+import java.util.Arrays;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sparse store: cells are grouped in square tiles kept in a hash map keyed by the tile coordinates,
+ * and a tile is only allocated once some non-zero data is written in it. Memory is proportional
+ * to the populated area rather than to the grid dimensions, which are not bounded.
+ * <p>
+ * Tiles are copied on write, as {@link ShellGridStore} chunks are.
+ */
+public final class TileGridStore implements GridStore {
+
+    public static final int TILE_BITS = 6;
+    public static final int TILE_LENGTH = 1 << TILE_BITS;
+
+    private static final int TILE_MASK = TILE_LENGTH - 1;
+    private static final int TILE_CELLS = TILE_LENGTH * TILE_LENGTH;
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final long FREE = -1;
+
+    private long[] keys = newKeys(DEFAULT_CAPACITY);
+    private byte[][] tiles = new byte[DEFAULT_CAPACITY][];
+    private boolean[] sharedTiles = new boolean[DEFAULT_CAPACITY];
+    private int tilesCount;
+
+    private static long[] newKeys(final int capacity) {
+        final long[] keys = new long[capacity];
+        Arrays.fill(keys, FREE);
+        return keys;
+    }
+
+    private static long keyOf(final int column, final int row) {
+        return (long) (column >>> TILE_BITS) << Integer.SIZE | row >>> TILE_BITS;
+    }
+
+    private static int offsetOf(final int column, final int row) {
+        return (row & TILE_MASK) << TILE_BITS | column & TILE_MASK;
+    }
+
+    private static int hash(final long key) {
+        final long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ mixed >>> 32);
+    }
+
+    public int getTilesCount() {
+        return tilesCount;
+    }
+
+    @Override
+    public void ensureCapacity(final int columnsCount, final int rowsCount) {
+        if (columnsCount < 0 || rowsCount < 0)
+            throw new IllegalArgumentException("invalid size: " + columnsCount + " x " + rowsCount);
+    }
+
+    /**
+     * Releases the tiles outside the given area, and also the tiles left without any non-zero data.
+     */
+    @Override
+    public void trim(final int columnsCount, final int rowsCount) {
+        final long[] oldKeys = keys;
+        final byte[][] oldTiles = tiles;
+        final boolean[] oldSharedTiles = sharedTiles;
+
+        keys = newKeys(DEFAULT_CAPACITY);
+        tiles = new byte[DEFAULT_CAPACITY][];
+        sharedTiles = new boolean[DEFAULT_CAPACITY];
+        tilesCount = 0;
+
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            final long key = oldKeys[slot];
+            if (key != FREE
+                    && (int) (key >>> Integer.SIZE) << TILE_BITS < columnsCount
+                    && (int) key << TILE_BITS < rowsCount
+                    && !isBlank(oldTiles[slot])) {
+                final int newSlot = insert(key, oldTiles[slot]);
+                sharedTiles[newSlot] = oldSharedTiles[slot];
+            }
+        }
+    }
+
+    private static boolean isBlank(final byte[] tile) {
+        for (final byte data : tile)
+            if (data != 0)
+                return false;
+        return true;
+    }
+
+    @Override
+    public long getAllocatedCells() {
+        return (long) tilesCount * TILE_CELLS;
+    }
+
+    @Override
+    public byte get(final int column, final int row) {
+        final int slot = slotOf(keyOf(column, row));
+        return slot < 0 ? 0 : tiles[slot][offsetOf(column, row)];
+    }
+
+    @Override
+    public void set(final int column, final int row, final byte data) {
+        final long key = keyOf(column, row);
+        int slot = slotOf(key);
+        if (slot < 0) {
+            if (data == 0)
+                return;
+            slot = insert(key, new byte[TILE_CELLS]);
+        } else if (sharedTiles[slot])
+            unshare(slot);
+
+        tiles[slot][offsetOf(column, row)] = data;
+    }
+
+    private int slotOf(final long key) {
+        final int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            final long current = keys[slot];
+            if (current == key)
+                return slot;
+            else if (current == FREE)
+                return -1;
+        }
+    }
+
+    private int insert(final long key, final byte[] tile) {
+        if ((tilesCount + 1) * 2 > keys.length)
+            rehash(keys.length * 2);
+
+        final int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != FREE)
+            slot = (slot + 1) & mask;
+
+        keys[slot] = key;
+        tiles[slot] = tile;
+        sharedTiles[slot] = false;
+        tilesCount++;
+        return slot;
+    }
+
+    private void rehash(final int capacity) {
+        final long[] oldKeys = keys;
+        final byte[][] oldTiles = tiles;
+        final boolean[] oldSharedTiles = sharedTiles;
+
+        keys = newKeys(capacity);
+        tiles = new byte[capacity][];
+        sharedTiles = new boolean[capacity];
+
+        final int mask = capacity - 1;
+        for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++)
+            if (oldKeys[oldSlot] != FREE) {
+                int slot = hash(oldKeys[oldSlot]) & mask;
+                while (keys[slot] != FREE)
+                    slot = (slot + 1) & mask;
+                keys[slot] = oldKeys[oldSlot];
+                tiles[slot] = oldTiles[oldSlot];
+                sharedTiles[slot] = oldSharedTiles[oldSlot];
+            }
+    }
+
+    private void unshare(final int slot) {
+        tiles[slot] = tiles[slot].clone();
+        sharedTiles[slot] = false;
+    }
+
+    @Override
+    public void prepareConcurrentWrites(@NotNull final GridStore model, final int columnsCount, final int rowsCount) {
+        for (int slot = 0; slot < keys.length; slot++)
+            if (sharedTiles[slot])
+                unshare(slot);
+
+        if (model instanceof TileGridStore) {
+            final long[] modelKeys = ((TileGridStore) model).keys;
+            for (final long key : modelKeys)
+                if (key != FREE && slotOf(key) < 0)
+                    insert(key, new byte[TILE_CELLS]);
+        } else
+            for (int row = 0; row < rowsCount; row++)
+                for (int column = 0; column < columnsCount; column++)
+                    if (model.get(column, row) != 0 && slotOf(keyOf(column, row)) < 0)
+                        insert(keyOf(column, row), new byte[TILE_CELLS]);
+    }
+
+    @Override
+    public void forEachNonZero(final int columnsCount, final int rowsCount, @NotNull final CellVisitor visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            final long key = keys[slot];
+            if (key == FREE)
+                continue;
+
+            final int fromColumn = (int) (key >>> Integer.SIZE) << TILE_BITS;
+            final int fromRow = (int) key << TILE_BITS;
+            final int toColumn = Math.min(fromColumn + TILE_LENGTH, columnsCount);
+            final int toRow = Math.min(fromRow + TILE_LENGTH, rowsCount);
+            final byte[] tile = tiles[slot];
+            for (int row = fromRow; row < toRow; row++)
+                for (int column = fromColumn; column < toColumn; column++) {
+                    final byte data = tile[offsetOf(column, row)];
+                    if (data != 0)
+                        visitor.visit(column, row, data);
+                }
+        }
+    }
+
+    @NotNull
+    @Override
+    public TileGridStore fork() {
+        final var fork = new TileGridStore();
+        fork.share(this);
+        return fork;
+    }
+
+    private void share(final TileGridStore source) {
+        for (int slot = 0; slot < source.keys.length; slot++)
+            if (source.keys[slot] != FREE)
+                source.sharedTiles[slot] = true;
+        keys = source.keys.clone();
+        tiles = source.tiles.clone();
+        sharedTiles = source.sharedTiles.clone();
+        tilesCount = source.tilesCount;
+    }
+
+    @Override
+    public void copyFrom(@NotNull final GridStore source, final int columnsCount, final int rowsCount) {
+        if (source instanceof TileGridStore)
+            share((TileGridStore) source);
+        else
+            GridStore.super.copyFrom(source, columnsCount, rowsCount);
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.util.Arrays;
+
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.CellsEngine;
+
+/**
+ * Forest fire simulation storing the states in three bit-planes of {@code long} words, so that
+ * {@link ForestRule} is applied to 64 cells at once: a tree ignites when any neighbor is on fire
+ * or when at least 3 neighbors are burned, which is exactly {@code flammability >= FIRE}.
+ * <p>
+ * The five states take three bits per cell:
+ * <pre>
+ *   state            wood burning ashes
+ *   EMPTY             0     0      0
+ *   TREE              1     0      0
+ *   FIRE              1     1      0
+ *   BURNED            0     1      1
+ *   BURNED_SLIGHTLY   0     0      1
+ * </pre>
+ * Generations are evolved in place, row by row, the fires and burned cells of the rows around
+ * the current one being kept in three rolling row buffers.
+ * Instances are not thread safe.
+ */
+public final class BitPlaneForestEngine implements CellsEngine {
+
+    private static final int WORD_BITS = Long.SIZE;
+
+    private final int columnsCount;
+    private final int rowsCount;
+    private final int wordsPerRow;
+
+    private final long[] wood;
+    private final long[] burning;
+    private final long[] ashes;
+
+    private long[] upFires;
+    private long[] upBurned;
+    private long[] rowFires;
+    private long[] rowBurned;
+    private long[] downFires;
+    private long[] downBurned;
+
+    private long generation;
+
+    public BitPlaneForestEngine(final int columnsCount, final int rowsCount) {
+        if (columnsCount < 0 || rowsCount < 0)
+            throw new IllegalArgumentException("invalid size: " + columnsCount + " x " + rowsCount);
+
+        this.columnsCount = columnsCount;
+        this.rowsCount = rowsCount;
+        this.wordsPerRow = (columnsCount + WORD_BITS - 1) / WORD_BITS;
+
+        final int wordsCount = Math.multiplyExact(wordsPerRow, rowsCount);
+        wood = new long[wordsCount];
+        burning = new long[wordsCount];
+        ashes = new long[wordsCount];
+
+        upFires = new long[wordsPerRow];
+        upBurned = new long[wordsPerRow];
+        rowFires = new long[wordsPerRow];
+        rowBurned = new long[wordsPerRow];
+        downFires = new long[wordsPerRow];
+        downBurned = new long[wordsPerRow];
+    }
+
+    @Override
+    public int getColumnsCount() {
+        return columnsCount;
+    }
+
+    @Override
+    public int getRowsCount() {
+        return rowsCount;
+    }
+
+    @Override
+    public long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public int getState(final int column, final int row) {
+        if (column < 0 || row < 0 || column >= columnsCount || row >= rowsCount)
+            return ForestRule.EMPTY;
+
+        final int word = row * wordsPerRow + column / WORD_BITS;
+        final long bit = 1L << column;
+        final boolean isWood = (wood[word] & bit) != 0;
+        final boolean isBurning = (burning[word] & bit) != 0;
+        if (isWood)
+            return isBurning ? ForestRule.FIRE : ForestRule.TREE;
+        else if ((ashes[word] & bit) != 0)
+            return isBurning ? ForestRule.BURNED : ForestRule.BURNED_SLIGHTLY;
+        else
+            return ForestRule.EMPTY;
+    }
+
+    @Override
+    public void setState(final int column, final int row, final int state) {
+        if (column < 0 || row < 0 || column >= columnsCount || row >= rowsCount)
+            throw new IndexOutOfBoundsException("for column: " + column + " and row: " + row);
+        if (!ForestRule.isValid(state))
+            throw new IllegalArgumentException("invalid state: " + state);
+
+        final int word = row * wordsPerRow + column / WORD_BITS;
+        final long bit = 1L << column;
+        wood[word] = state == ForestRule.TREE || state == ForestRule.FIRE ? wood[word] | bit : wood[word] & ~bit;
+        burning[word] = state == ForestRule.FIRE || state == ForestRule.BURNED
+                ? burning[word] | bit : burning[word] & ~bit;
+        ashes[word] = state == ForestRule.BURNED || state == ForestRule.BURNED_SLIGHTLY
+                ? ashes[word] | bit : ashes[word] & ~bit;
+    }
+
+    public void seed(final long seed, final double treesDensity) {
+        ForestRule.plantTrees(this, seed, treesDensity);
+    }
+
+    @Override
+    public long count(final int state) {
+        long count = 0;
+        switch (state) {
+            case ForestRule.TREE:
+                for (int word = 0; word < wood.length; word++)
+                    count += Long.bitCount(wood[word] & ~burning[word]);
+                return count;
+            case ForestRule.FIRE:
+                for (int word = 0; word < wood.length; word++)
+                    count += Long.bitCount(wood[word] & burning[word]);
+                return count;
+            case ForestRule.BURNED:
+                for (int word = 0; word < wood.length; word++)
+                    count += Long.bitCount(ashes[word] & burning[word]);
+                return count;
+            case ForestRule.BURNED_SLIGHTLY:
+                for (int word = 0; word < wood.length; word++)
+                    count += Long.bitCount(ashes[word] & ~burning[word]);
+                return count;
+            case ForestRule.EMPTY:
+                for (int word = 0; word < wood.length; word++)
+                    count += Long.bitCount(wood[word] | ashes[word]);
+                return (long) columnsCount * rowsCount - count;
+            default:
+                return 0;
+        }
+    }
+
+    @Override
+    public void step() {
+        if (rowsCount > 0) {
+            Arrays.fill(upFires, 0);
+            Arrays.fill(upBurned, 0);
+            loadRow(0, rowFires, rowBurned);
+
+            for (int row = 0; row < rowsCount; row++) {
+                if (row < rowsCount - 1)
+                    loadRow(row + 1, downFires, downBurned);
+                else {
+                    Arrays.fill(downFires, 0);
+                    Arrays.fill(downBurned, 0);
+                }
+
+                evolveRow(row);
+                rollRows();
+            }
+        }
+
+        generation++;
+    }
+
+    private void loadRow(final int row, final long[] fires, final long[] burned) {
+        final int rowStart = row * wordsPerRow;
+        for (int w = 0; w < wordsPerRow; w++) {
+            final int word = rowStart + w;
+            fires[w] = wood[word] & burning[word];
+            burned[w] = ashes[word] & burning[word];
+        }
+    }
+
+    private void evolveRow(final int row) {
+        final int rowStart = row * wordsPerRow;
+
+        for (int w = 0; w < wordsPerRow; w++) {
+            final int word = rowStart + w;
+
+            final long firesAround = west(upFires, w) | upFires[w] | east(upFires, w)
+                    | west(rowFires, w) | east(rowFires, w)
+                    | west(downFires, w) | downFires[w] | east(downFires, w);
+
+            final long atLeastThreeBurned = atLeastThree(
+                    west(upBurned, w), upBurned[w], east(upBurned, w),
+                    west(rowBurned, w), east(rowBurned, w),
+                    west(downBurned, w), downBurned[w], east(downBurned, w));
+
+            final long fire = rowFires[w];
+            final long tree = wood[word] & ~burning[word];
+            final long ignited = tree & (firesAround | atLeastThreeBurned);
+
+            // trees stay wood, burning or not, fires burn out and every burned cell keeps its ashes
+            wood[word] = tree;
+            burning[word] = ignited | fire;
+            ashes[word] |= fire;
+        }
+    }
+
+    private void rollRows() {
+        long[] swap = upFires;
+        upFires = rowFires;
+        rowFires = downFires;
+        downFires = swap;
+
+        swap = upBurned;
+        upBurned = rowBurned;
+        rowBurned = downBurned;
+        downBurned = swap;
+    }
+
+    private static long atLeastThree(final long a, final long b, final long c, final long d,
+                                     final long e, final long f, final long g, final long h) {
+        final long abc = a ^ b ^ c;
+        final long def = d ^ e ^ f;
+        final long gh = g ^ h;
+        final long ones = abc ^ def ^ gh;
+
+        // the count is ones + 2 * (number of set carries)
+        final long abcCarry = majority(a, b, c);
+        final long defCarry = majority(d, e, f);
+        final long ghCarry = g & h;
+        final long onesCarry = majority(abc, def, gh);
+
+        final long oneCarry = abcCarry | defCarry | ghCarry | onesCarry;
+        final long twoCarries = (abcCarry & defCarry) | (ghCarry & onesCarry)
+                | ((abcCarry | defCarry) & (ghCarry | onesCarry));
+
+        return twoCarries | (oneCarry & ones);
+    }
+
+    private static long majority(final long a, final long b, final long c) {
+        return (a & b) | (a & c) | (b & c);
+    }
+
+    private static long west(final long[] row, final int w) {
+        final long value = row[w] << 1;
+        return w > 0 ? value | row[w - 1] >>> (WORD_BITS - 1) : value;
+    }
+
+    private static long east(final long[] row, final int w) {
+        final long value = row[w] >>> 1;
+        return w < row.length - 1 ? value | row[w + 1] << (WORD_BITS - 1) : value;
+    }
+}
@@ -19,22 +19,14 @@ import java.util.Objects;
 
 import org.jetbrains.annotations.NotNull;
 
-public class Cell {
+public final class Cell {
 
-    private static final int EMPTY = 0;
-    public static final State EMPTY_STATE = new State(EMPTY, "Vide", new Color(155, 100, 50));
-
-    private static final int BURNED = 1;
-    public static final State BURNED_STATE = new State(BURNED, "Brulée", new Color(50, 50, 50));
-
-    private static final int FIRE = 3;
-    public static final State FIRE_STATE = new State(FIRE, "Feu", new Color(255, 40, 20));
-
-    private static final int BURNED_SLIGHTLY = 4;
-    public static final State BURNED_SLIGHTLY_STATE = new State(BURNED_SLIGHTLY, "Brulée Froide", new Color(100, 100, 100));
-
-    private static final int TREE = 8;
-    public static final State TREE_STATE = new State(TREE, "Arbre", new Color(45, 150, 25));
+    public static final State EMPTY_STATE = new State(ForestRule.EMPTY, "Vide", new Color(155, 100, 50));
+    public static final State BURNED_STATE = new State(ForestRule.BURNED, "Brulée", new Color(50, 50, 50));
+    public static final State FIRE_STATE = new State(ForestRule.FIRE, "Feu", new Color(255, 40, 20));
+    public static final State BURNED_SLIGHTLY_STATE =
+            new State(ForestRule.BURNED_SLIGHTLY, "Brulée Froide", new Color(100, 100, 100));
+    public static final State TREE_STATE = new State(ForestRule.TREE, "Arbre", new Color(45, 150, 25));
 
     private static final State[] STATES = {
             EMPTY_STATE,
@@ -45,106 +37,54 @@ public class Cell {
             null, null, null,
             TREE_STATE};
 
-    private static final int CURRENT_STATE_MASK = 0b1111;
-    private static final int NEXT_STATE_MASK = 0b1111_0000;
-    private static final int FLAMMABILITY_MASK = 0b11;
-
-    private State currentState = null;
-    private State nextState = null;
-    private int flammability = 0;
+    private Cell() {
+    }
 
-    public void draw(final Graphics2D g, final int x, final int y, final int cellSize) {
-        g.setColor(currentState.color());
-        if (currentState == STATES[TREE] || currentState == STATES[FIRE])
-            g.fill3DRect(x, y, cellSize, cellSize, true);
+    public static void draw(final Graphics2D g, final State state, final int x, final int y, final int cellSize) {
+        g.setColor(state.color());
+        if (state == TREE_STATE || state == FIRE_STATE)
+            fillRaisedRect(g, state, x, y, cellSize);
         else
             g.fillRect(x, y, cellSize, cellSize);
     }
 
-    public byte exportState() {
-        return (byte) (currentState.ordinal() | nextState.ordinal() << 4);
-    }
-
-    public void importState(final byte data) {
-        final int encodedState = Byte.toUnsignedInt(data);
-        currentState = decodeState(encodedState, CURRENT_STATE_MASK, 0);
-        nextState = decodeState(encodedState, NEXT_STATE_MASK, 4);
-        flammability = 0;
-    }
-
-    private State decodeState(final int encodedState, final int mask, final int position) {
-        return STATES[(encodedState & mask) >> position];
+    /**
+     * Same pixels as {@link Graphics2D#fill3DRect(int, int, int, int, boolean)} raised, without the
+     * brighter and darker colors it allocates at each call.
+     */
+    private static void fillRaisedRect(final Graphics2D g, final State state, final int x, final int y,
+                                       final int cellSize) {
+        g.fillRect(x + 1, y + 1, cellSize - 2, cellSize - 2);
+        g.setColor(state.brighterColor);
+        g.fillRect(x, y, 1, cellSize);
+        g.fillRect(x + 1, y, cellSize - 2, 1);
+        g.setColor(state.darkerColor);
+        g.fillRect(x + 1, y + cellSize - 1, cellSize - 1, 1);
+        g.fillRect(x + cellSize - 1, y, 1, cellSize - 1);
     }
 
     @NotNull
-    public State getState(final int ordinal) {
-        final State state = STATES[ordinal];
+    public static State stateOf(final int ordinal) {
+        final State state = ordinal >= 0 && ordinal < STATES.length ? STATES[ordinal] : null;
         if (state == null)
             throw new NoSuchElementException("for: " + ordinal);
         return state;
     }
 
-    public void evolve() {
-        switch (currentState.ordinal) {
-            case EMPTY:
-                nextState = STATES[EMPTY];
-                break;
-            case BURNED:
-                nextState = STATES[BURNED_SLIGHTLY];
-                break;
-            case BURNED_SLIGHTLY:
-                nextState = STATES[BURNED_SLIGHTLY];
-                break;
-            case FIRE:
-                nextState = STATES[BURNED];
-                break;
-            case TREE:
-                nextState = STATES[TREE];
-                break;
-            default:
-                assert false;
-        }
-    }
-
-    public void consider(final byte neighbor) {
-        flammability += neighbor & FLAMMABILITY_MASK;
-    }
-
-    public boolean stillEvolving() {
-        if (currentState != TREE_STATE)
-            return false;
-
-        final boolean onFire = flammability >= FIRE;
-        if (onFire)
-            nextState = STATES[FIRE];
-
-        return !onFire;
-    }
-
-    public boolean onClick(final State cursorType) {
-        final boolean changeState = currentState != cursorType;
-        if (changeState)
-            currentState = cursorType;
-
-        return changeState;
-    }
-
-    public void reset() {
-        currentState = null;
-        nextState = null;
-        flammability = 0;
-    }
-
     public static final class State {
 
         private final int ordinal;
         private final String name;
         private final Color color;
+        private final Color brighterColor;
+        private final Color darkerColor;
 
         private State(final int ordinal, final String name, final Color color) {
             this.ordinal = ordinal;
             this.name = Objects.requireNonNull(name);
             this.color = Objects.requireNonNull(color);
+            this.brighterColor = color.brighter();
+            this.darkerColor = color.darker();
         }
 
         public int ordinal() {
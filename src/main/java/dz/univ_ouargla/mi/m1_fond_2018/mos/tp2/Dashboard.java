@@ -12,16 +12,32 @@
 
 package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
 
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import javax.swing.JButton;
 import javax.swing.JComboBox;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JSeparator;
+import javax.swing.JSpinner;
+import javax.swing.JToggleButton;
+import javax.swing.SpinnerNumberModel;
 import javax.swing.SwingConstants;
+import javax.swing.WindowConstants;
 
 import dz.univ_ouargla.mi.m1_fond_2018.mos.common.CellGridDashboard;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.DashboardFrame;
 
 public class Dashboard extends CellGridDashboard {
 
     private static final long serialVersionUID = 497951304869397529L;
 
+    private final JFileChooser fileChooser = new JFileChooser();
+    private final JSpinner replayGeneration = new JSpinner();
+
     public Dashboard(final Forest forest) {
         super(forest);
         setup(forest);
@@ -31,6 +47,108 @@ public class Dashboard extends CellGridDashboard {
         add(new JSeparator(SwingConstants.VERTICAL));
         add(newCursorTypePalette());
         addPropertyChangeListener(StateProperty.CURSOR_TYPE.fullName(), forest::editCursorType);
+
+        add(new JSeparator(SwingConstants.VERTICAL));
+        add(newFileButton("Sauvegarder", true, forest::saveSnapshot));
+        add(newFileButton("Charger", false, forest::loadSnapshot));
+
+        add(new JSeparator(SwingConstants.VERTICAL));
+        add(newFileToggleButton("Enregistrer", true, forest::startRecording, forest::stopRecording));
+        add(newFileToggleButton("Rejouer", false,
+                path -> startReplay(forest, path), () -> stopReplay(forest)));
+        add(new JLabel("Génération"));
+        add(newReplayGenerationSpinner(forest));
+
+        add(new JSeparator(SwingConstants.VERTICAL));
+        final var forkButton = new JButton("Dupliquer");
+        forkButton.addActionListener(event -> openFork(forest));
+        add(forkButton);
+
+        final var metricsButton = new JToggleButton("Mesures");
+        metricsButton.addActionListener(event -> forest.setMetricsShown(metricsButton.isSelected()));
+        add(metricsButton);
+    }
+
+    private JSpinner newReplayGenerationSpinner(final Forest forest) {
+        replayGeneration.setEnabled(false);
+        replayGeneration.addChangeListener(event -> {
+            if (replayGeneration.isEnabled())
+                try {
+                    forest.seekReplay(((Number) replayGeneration.getValue()).longValue());
+                } catch (final IOException e) {
+                    showError("Rejouer", e);
+                }
+        });
+        return replayGeneration;
+    }
+
+    private void startReplay(final Forest forest, final Path path) throws IOException {
+        forest.startReplay(path);
+        final Long firstGeneration = forest.getReplayFirstGeneration();
+        replayGeneration.setModel(new SpinnerNumberModel(
+                firstGeneration, firstGeneration, Long.valueOf(forest.getReplayLastGeneration()), Long.valueOf(1)));
+        replayGeneration.setEnabled(true);
+    }
+
+    private void stopReplay(final Forest forest) throws IOException {
+        replayGeneration.setEnabled(false);
+        forest.stopReplay();
+    }
+
+    private static void openFork(final Forest forest) {
+        final var fork = forest.fork();
+        final var frame = new DashboardFrame("Forest Simulator (copie)", new Dashboard(fork), fork);
+        frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(final WindowEvent e) {
+                fork.setStarted(false);
+            }
+        });
+        frame.launch();
+    }
+
+    private JButton newFileButton(final String label, final boolean save, final FileAction action) {
+        final var button = new JButton(label);
+        button.addActionListener(event -> chooseFile(label, save, action));
+        return button;
+    }
+
+    private JToggleButton newFileToggleButton(final String label, final boolean save,
+                                              final FileAction start, final StopAction stop) {
+        final var button = new JToggleButton(label);
+        button.addActionListener(event -> {
+            if (button.isSelected())
+                button.setSelected(chooseFile(label, save, start));
+            else
+                try {
+                    stop.apply();
+                } catch (final IOException e) {
+                    showError(label, e);
+                }
+        });
+        return button;
+    }
+
+    private boolean chooseFile(final String label, final boolean save, final FileAction action) {
+        final int choice = save
+                ? fileChooser.showSaveDialog(this)
+                : fileChooser.showOpenDialog(this);
+
+        if (choice == JFileChooser.APPROVE_OPTION) {
+            final Path path = fileChooser.getSelectedFile().toPath();
+            try {
+                action.apply(path);
+                return true;
+            } catch (final IOException e) {
+                showError(label, e);
+            }
+        }
+        return false;
+    }
+
+    private void showError(final String label, final IOException e) {
+        JOptionPane.showMessageDialog(this, e.getMessage(), label, JOptionPane.ERROR_MESSAGE);
     }
 
     private JComboBox<Cell.State> newCursorTypePalette() {
@@ -47,4 +165,16 @@ public class Dashboard extends CellGridDashboard {
 
         return comboBox;
     }
+
+    @FunctionalInterface
+    private interface FileAction {
+
+        void apply(Path path) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface StopAction {
+
+        void apply() throws IOException;
+    }
 }
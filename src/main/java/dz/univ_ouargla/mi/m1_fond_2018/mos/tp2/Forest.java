@@ -14,6 +14,8 @@ package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
 
 import java.awt.event.MouseEvent;
 import java.beans.PropertyChangeEvent;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Objects;
 import javax.swing.event.MouseInputAdapter;
 
@@ -63,6 +65,78 @@ public final class Forest extends BasicCellGrid {
         }
     }
 
+    public void saveSnapshot(@NotNull final Path path) throws IOException {
+        forestKeeper.save(path);
+    }
+
+    public void loadSnapshot(@NotNull final Path path) throws IOException {
+        forestKeeper.load(path);
+        repaint();
+    }
+
+    /**
+     * Returns a new forest starting from a copy of this one's cells, for trying alternative scenarios.
+     */
+    @NotNull
+    public Forest fork() {
+        final var fork = new Forest(forestKeeper.fork());
+        fork.setCellSize(getCellSize());
+        fork.setBorderWidth(getBorderWidth());
+        fork.setFrameDelay(getFrameDelay());
+        fork.setCursorType(getCursorType());
+        return fork;
+    }
+
+    public boolean isMetricsShown() {
+        return getOverlay() != null;
+    }
+
+    /**
+     * Shows the keeper metrics over the cells, creating them if the keeper has none yet.
+     */
+    public void setMetricsShown(final boolean metricsShown) {
+        var metrics = forestKeeper.getMetrics();
+        if (metrics == null) {
+            if (!metricsShown)
+                return;
+            metrics = new ForestMetrics();
+            forestKeeper.setMetrics(metrics);
+        }
+
+        metrics.setEnabled(metricsShown);
+        setOverlay(metricsShown ? metrics::describe : null);
+    }
+
+    public void startRecording(@NotNull final Path path) throws IOException {
+        forestKeeper.startRecording(path);
+    }
+
+    public void stopRecording() throws IOException {
+        forestKeeper.stopRecording();
+    }
+
+    public void startReplay(@NotNull final Path path) throws IOException {
+        forestKeeper.startReplay(path);
+        repaint();
+    }
+
+    public long getReplayFirstGeneration() {
+        return forestKeeper.getReplayFirstGeneration();
+    }
+
+    public long getReplayLastGeneration() {
+        return forestKeeper.getReplayLastGeneration();
+    }
+
+    public void seekReplay(final long generation) throws IOException {
+        forestKeeper.seekReplay(generation);
+        repaint();
+    }
+
+    public void stopReplay() throws IOException {
+        forestKeeper.stopReplay();
+    }
+
     private void handleClick(final MouseEvent event) {
         final boolean paintNeeded = forestKeeper.handleClick(event, cursorType);
         if (paintNeeded)
@@ -0,0 +1,1025 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.BandGridStore;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.BlockedGridStore;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.CellsEngine;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.GridStore;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.LongHashSet;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.LongList;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.PaddedGridStore;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.RetentionPolicy;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.TileGridStore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Headless forest fire simulation: owns the cells and applies {@link ForestRule} to them,
+ * without any dependency on AWT or Swing.
+ * <p>
+ * Generations are double buffered: the next generation is computed from the front store into
+ * the back store, then the two are swapped. Instances are not thread safe, except that
+ * {@link #getState(int, int)} may be called while {@link #prepareNextGeneration()} runs,
+ * and that a single generation can be split in columns bands evolved concurrently
+ * (see {@link #setParallelism(int)}).
+ * <p>
+ * In {@link StepMode#FRONTIER} mode only the burning cells and the trees around them are
+ * visited, so a step costs in proportion to the fire front and nothing at all when no cell burns.
+ * <p>
+ * With {@link PaddedGridStore}s, {@link StepMode#FULL_SCAN} mode reads the neighbors straight from
+ * the padded arrays, at fixed offsets and without any bounds check.
+ * <p>
+ * With a {@linkplain #setStochasticRule(StochasticForestRule) stochastic rule}, trees grow and
+ * ignite anywhere, so every generation is a full scan whatever the step mode, and one evolved
+ * on a single thread with sparse {@link TileGridStore}s.
+ * <p>
+ * A {@linkplain #setSpreadKernel(SpreadKernel) spread kernel} and a {@linkplain #setTerrain(Terrain)
+ * terrain} weigh the neighbors of {@link ForestRule} by direction, distance, slope and fuel.
+ */
+public final class ForestEngine implements CellsEngine {
+
+    private static final int[] NEIGHBORS_COLUMNS = {-1, 0, 1, -1, 1, -1, 0, 1};
+    private static final int[] NEIGHBORS_ROWS = {-1, -1, -1, 0, 0, 1, 1, 1};
+
+    private static final int BANDS_PER_WORKER = 4;
+    private static final int SCAN_BLOCK_ROWS = BlockedGridStore.BLOCK_LENGTH;
+
+    private static final int STATE_BITS = 4;
+    private static final int STATE_MASK = (1 << STATE_BITS) - 1;
+    private static final int ROW_BITS = 28;
+    private static final long ROW_MASK = (1L << ROW_BITS) - 1;
+
+    /**
+     * Transitions counts are followed by the number of burning cells.
+     */
+    private static final int TRANSITIONS_LENGTH = ForestRule.STATES_COUNT + 1;
+
+    private static final int FLAMMABILITY_BITS = 8;
+    private static final int FLAMMABILITY_MASK = (1 << FLAMMABILITY_BITS) - 1;
+
+    public enum StepMode {
+        FULL_SCAN, FRONTIER
+    }
+
+    /**
+     * Notified of every cell whose state changes, either through {@link #setState(int, int, int)}
+     * or by a published generation, and of any change invalidating the cells as a whole.
+     */
+    public interface ChangesListener {
+
+        void cellChanged(final int column, final int row);
+
+        void generationPublished(final long generation);
+
+        void forestReset();
+    }
+
+    private GridStore front;
+    private GridStore back;
+
+    private int columnsCount;
+    private int rowsCount;
+    private long generation;
+    private boolean nextGenerationPrepared;
+
+    private int parallelism = 1;
+    private ForkJoinPool pool;
+    private BandAction bands;
+    private boolean bandsCounted;
+
+    private ChangesListener changesListener;
+    private RetentionPolicy retentionPolicy = RetentionPolicy.KEEP_ALL;
+    private int retainedColumnsCount;
+    private int retainedRowsCount;
+
+    private StepMode stepMode = StepMode.FULL_SCAN;
+    private StochasticForestRule stochasticRule;
+    private SpreadKernel spreadKernel;
+    private Terrain terrain;
+
+    private SpreadKernel compiledKernel;
+    private int compiledStride;
+    private int compiledTerrainStride;
+    private int[] kernelIndexOffsets;
+    private int[] kernelTerrainOffsets;
+    private boolean frontierValid;
+    private final LongList burningCells = new LongList();
+    private final LongList visitedCells = new LongList();
+    private final LongList changes = new LongList();
+    private final LongHashSet visited = new LongHashSet();
+
+    private long preparedCellsExamined;
+    private long preparedNeighborLookups;
+    private long cellsExamined;
+    private long neighborLookups;
+    private int fireFrontSize = -1;
+    private long[] transitions;
+    private long[] preparedTransitions;
+    private boolean transitionsPrepared;
+
+    public ForestEngine() {
+        this(BandGridStore::new);
+    }
+
+    public ForestEngine(final int columnsCount, final int rowsCount) {
+        this();
+        resize(columnsCount, rowsCount);
+    }
+
+    public ForestEngine(@NotNull final Supplier<? extends GridStore> storeFactory) {
+        this(storeFactory.get(), storeFactory.get());
+    }
+
+    private ForestEngine(@NotNull final GridStore front, @NotNull final GridStore back) {
+        this.front = Objects.requireNonNull(front);
+        this.back = Objects.requireNonNull(back);
+    }
+
+    public void resize(final int columnsCount, final int rowsCount) {
+        if (columnsCount < 0 || rowsCount < 0)
+            throw new IllegalArgumentException("invalid size: " + columnsCount + " x " + rowsCount);
+
+        front.ensureCapacity(columnsCount, rowsCount);
+        back.ensureCapacity(columnsCount, rowsCount);
+        hideCellsOutside(columnsCount, rowsCount);
+        trimStores(columnsCount, rowsCount);
+
+        final boolean resized = this.columnsCount != columnsCount || this.rowsCount != rowsCount;
+        this.columnsCount = columnsCount;
+        this.rowsCount = rowsCount;
+        boundPaddedStores();
+        nextGenerationPrepared = false;
+        frontierValid = false;
+
+        if (resized && changesListener != null)
+            changesListener.forestReset();
+    }
+
+    private void hideCellsOutside(final int newColumnsCount, final int newRowsCount) {
+        // cells leaving the active area are no longer evolved, so both buffers must agree on them
+        for (int column = 0; column < columnsCount; column++)
+            for (int row = column < newColumnsCount ? newRowsCount : 0; row < rowsCount; row++)
+                back.set(column, row, front.get(column, row));
+    }
+
+    private void boundPaddedStores() {
+        if (front instanceof PaddedGridStore)
+            ((PaddedGridStore) front).setBounds(columnsCount, rowsCount);
+        if (back instanceof PaddedGridStore)
+            ((PaddedGridStore) back).setBounds(columnsCount, rowsCount);
+    }
+
+    private void trimStores(final int columnsCount, final int rowsCount) {
+        final int keptColumnsCount = Math.max(columnsCount, retainedColumnsCount);
+        final int keptRowsCount = Math.max(rowsCount, retainedRowsCount);
+        final long keptCells = (long) keptColumnsCount * keptRowsCount;
+        if (retentionPolicy.shouldTrim(front.getAllocatedCells(), keptCells)
+                || retentionPolicy.shouldTrim(back.getAllocatedCells(), keptCells)) {
+            front.trim(keptColumnsCount, keptRowsCount);
+            back.trim(keptColumnsCount, keptRowsCount);
+        }
+    }
+
+    @NotNull
+    public RetentionPolicy getRetentionPolicy() {
+        return retentionPolicy;
+    }
+
+    /**
+     * Sets how many hidden cells the stores may keep when the grid shrinks, beyond which
+     * they are released, and applies it to the current size.
+     */
+    public void setRetentionPolicy(@NotNull final RetentionPolicy retentionPolicy) {
+        this.retentionPolicy = Objects.requireNonNull(retentionPolicy);
+        trimStores(columnsCount, rowsCount);
+    }
+
+    public int getRetainedColumnsCount() {
+        return retainedColumnsCount;
+    }
+
+    public int getRetainedRowsCount() {
+        return retainedRowsCount;
+    }
+
+    /**
+     * Keeps the cells of the given area through any later shrink whatever the retention policy,
+     * as those of a loaded forest larger than the grid, until another area is retained.
+     */
+    public void retain(final int columnsCount, final int rowsCount) {
+        if (columnsCount < 0 || rowsCount < 0)
+            throw new IllegalArgumentException("invalid size: " + columnsCount + " x " + rowsCount);
+
+        this.retainedColumnsCount = columnsCount;
+        this.retainedRowsCount = rowsCount;
+        trimStores(this.columnsCount, this.rowsCount);
+    }
+
+    @Override
+    public int getColumnsCount() {
+        return columnsCount;
+    }
+
+    @Override
+    public int getRowsCount() {
+        return rowsCount;
+    }
+
+    @Override
+    public long getGeneration() {
+        return generation;
+    }
+
+    public void setGeneration(final long generation) {
+        this.generation = generation;
+        if (changesListener != null)
+            changesListener.forestReset();
+    }
+
+    @Nullable
+    public ChangesListener getChangesListener() {
+        return changesListener;
+    }
+
+    public void setChangesListener(@Nullable final ChangesListener changesListener) {
+        this.changesListener = changesListener;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(final int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("invalid parallelism: " + parallelism);
+
+        if (this.parallelism != parallelism) {
+            if (pool != null)
+                pool.shutdown();
+
+            this.parallelism = parallelism;
+            this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        }
+    }
+
+    @NotNull
+    public StepMode getStepMode() {
+        return stepMode;
+    }
+
+    public void setStepMode(@NotNull final StepMode stepMode) {
+        if (this.stepMode != Objects.requireNonNull(stepMode)) {
+            this.stepMode = stepMode;
+            nextGenerationPrepared = false;
+            frontierValid = false;
+        }
+    }
+
+    @Nullable
+    public StochasticForestRule getStochasticRule() {
+        return stochasticRule;
+    }
+
+    /**
+     * Evolves the cells with the given stochastic rule instead of {@link ForestRule}, or with
+     * {@link ForestRule} again when null.
+     */
+    public void setStochasticRule(@Nullable final StochasticForestRule stochasticRule) {
+        if (this.stochasticRule != stochasticRule) {
+            this.stochasticRule = stochasticRule;
+            nextGenerationPrepared = false;
+            frontierValid = false;
+        }
+    }
+
+    @Nullable
+    public SpreadKernel getSpreadKernel() {
+        return spreadKernel;
+    }
+
+    /**
+     * Weighs the neighbors of {@link ForestRule} with the given kernel, or equally when null.
+     * Stochastic rules count the eight nearest neighbors whatever the kernel.
+     */
+    public void setSpreadKernel(@Nullable final SpreadKernel spreadKernel) {
+        this.spreadKernel = spreadKernel;
+        nextGenerationPrepared = false;
+    }
+
+    @Nullable
+    public Terrain getTerrain() {
+        return terrain;
+    }
+
+    /**
+     * Weighs the spread of {@link ForestRule} with the slope and fuel of the given terrain,
+     * or ignores them when null. The terrain is read as it is at each generation.
+     */
+    public void setTerrain(@Nullable final Terrain terrain) {
+        this.terrain = terrain;
+        nextGenerationPrepared = false;
+    }
+
+    @Nullable
+    private SpreadKernel weighingKernel() {
+        if (spreadKernel != null)
+            return spreadKernel;
+        else
+            return terrain != null ? SpreadKernel.MOORE : null;
+    }
+
+    private boolean isFrontierStepped() {
+        return stepMode == StepMode.FRONTIER && stochasticRule == null;
+    }
+
+    @Override
+    public int getState(final int column, final int row) {
+        if (column < 0 || row < 0 || column >= columnsCount || row >= rowsCount)
+            return ForestRule.EMPTY;
+        else
+            return front.get(column, row);
+    }
+
+    @Override
+    public void setState(final int column, final int row, final int state) {
+        if (column < 0 || row < 0 || column >= columnsCount || row >= rowsCount)
+            throw new IndexOutOfBoundsException("for column: " + column + " and row: " + row);
+        if (!ForestRule.isValid(state))
+            throw new IllegalArgumentException("invalid state: " + state);
+
+        if (changesListener != null && front.get(column, row) != state)
+            changesListener.cellChanged(column, row);
+
+        front.set(column, row, (byte) state);
+        nextGenerationPrepared = false;
+        if (frontierValid && isBurning(state))
+            burningCells.add(positionOf(column, row));
+    }
+
+    /**
+     * Tells whether no cell burns any more, after which generations no longer change anything.
+     * Cheap in {@link StepMode#FRONTIER} mode, a full count otherwise.
+     */
+    public boolean isBurnedOut() {
+        if (isFrontierStepped()) {
+            if (!frontierValid)
+                rebuildFrontier();
+            for (int i = 0; i < burningCells.size(); i++) {
+                final long position = burningCells.get(i);
+                if (isBurning(front.get(columnOf(position), rowOf(position))))
+                    return false;
+            }
+            return true;
+        } else
+            return count(ForestRule.FIRE) == 0 && count(ForestRule.BURNED) == 0;
+    }
+
+    /**
+     * Enables counting, for each published generation, the cells entering each state and the
+     * size of the fire front. Full scans count them as they evolve the cells, so counting must be
+     * enabled before the generation is prepared to avoid a second scan when it is published.
+     */
+    public void setTransitionsCounted(final boolean transitionsCounted) {
+        if (transitionsCounted != isTransitionsCounted()) {
+            this.transitions = transitionsCounted ? new long[ForestRule.STATES_COUNT] : null;
+            this.preparedTransitions = transitionsCounted ? new long[TRANSITIONS_LENGTH] : null;
+            this.transitionsPrepared = false;
+        }
+    }
+
+    public boolean isTransitionsCounted() {
+        return transitions != null;
+    }
+
+    /**
+     * Returns how many cells entered the given state in the last published generation,
+     * or zero unless {@linkplain #setTransitionsCounted(boolean) counted}.
+     */
+    public long getTransitionsCount(final int state) {
+        return transitions == null || !ForestRule.isValid(state) ? 0 : transitions[state];
+    }
+
+    /**
+     * Returns the number of cells the last published generation was computed from.
+     */
+    public long getCellsExamined() {
+        return cellsExamined;
+    }
+
+    /**
+     * Returns the number of neighbors states read to compute the last published generation.
+     */
+    public long getNeighborLookups() {
+        return neighborLookups;
+    }
+
+    /**
+     * Returns the number of burning cells after the last published generation, or -1 when unknown,
+     * which happens in {@link StepMode#FULL_SCAN} mode unless transitions are counted.
+     */
+    public int getFireFrontSize() {
+        return fireFrontSize;
+    }
+
+    @Override
+    public long count(final int state) {
+        final long[] counts = new long[ForestRule.STATES_COUNT];
+        front.forEachNonZero(columnsCount, rowsCount, (column, row, data) -> counts[data]++);
+        if (state == ForestRule.EMPTY)
+            return (long) columnsCount * rowsCount - Arrays.stream(counts).sum();
+        else
+            return ForestRule.isValid(state) ? counts[state] : 0;
+    }
+
+    public void seed(final long seed, final double treesDensity) {
+        ForestRule.plantTrees(this, seed, treesDensity);
+    }
+
+    @Override
+    public void step() {
+        prepareNextGeneration();
+        publishNextGeneration();
+    }
+
+    public boolean isNextGenerationPrepared() {
+        return nextGenerationPrepared;
+    }
+
+    public void prepareNextGeneration() {
+        if (!isFrontierStepped())
+            compileKernel();
+
+        final long[] counts = isFrontierStepped() ? null : preparedTransitions;
+        if (counts != null)
+            Arrays.fill(counts, 0);
+        transitionsPrepared = counts != null;
+
+        if (isFrontierStepped())
+            prepareFrontier();
+        else if (pool != null && columnsCount > 1 && isConcurrentlyWritable()) {
+            final int bandWidth = Math.max(1, columnsCount / (parallelism * BANDS_PER_WORKER));
+            if (bands == null || bands.toColumn != columnsCount || bands.bandWidth != bandWidth)
+                bands = new BandAction(0, columnsCount, bandWidth);
+
+            back.prepareConcurrentWrites(front, columnsCount, rowsCount);
+            bandsCounted = counts != null;
+            bands.reinitialize();
+            pool.invoke(bands);
+            preparedNeighborLookups = bands.neighborLookups;
+            if (counts != null)
+                System.arraycopy(bands.transitions, 0, counts, 0, TRANSITIONS_LENGTH);
+        } else {
+            if (isPadded())
+                back.prepareConcurrentWrites(front, columnsCount, rowsCount);
+            preparedNeighborLookups = evolveColumns(0, columnsCount, counts);
+        }
+
+        if (!isFrontierStepped())
+            preparedCellsExamined = (long) columnsCount * rowsCount;
+
+        nextGenerationPrepared = true;
+    }
+
+    public void publishNextGeneration() {
+        if (!nextGenerationPrepared)
+            throw new IllegalStateException("next generation not prepared");
+
+        if (transitions != null)
+            Arrays.fill(transitions, 0);
+
+        if (isFrontierStepped()) {
+            applyChanges();
+            fireFrontSize = burningCells.size();
+        } else {
+            final GridStore completed = back;
+            back = front;
+            front = completed;
+            frontierValid = false;
+            if (transitions != null && transitionsPrepared) {
+                System.arraycopy(preparedTransitions, 0, transitions, 0, ForestRule.STATES_COUNT);
+                fireFrontSize = (int) preparedTransitions[ForestRule.STATES_COUNT];
+            } else
+                fireFrontSize = transitions != null ? countTransitions() : -1;
+            if (changesListener != null)
+                notifyChangedCells();
+        }
+        cellsExamined = preparedCellsExamined;
+        neighborLookups = preparedNeighborLookups;
+
+        generation++;
+        nextGenerationPrepared = false;
+        if (changesListener != null)
+            changesListener.generationPublished(generation);
+    }
+
+    /**
+     * Counts the transitions of a generation prepared before counting was enabled.
+     */
+    private int countTransitions() {
+        int burningCount = 0;
+        for (int column = 0; column < columnsCount; column++)
+            for (int row = 0; row < rowsCount; row++) {
+                final int state = front.get(column, row);
+                if (state != back.get(column, row))
+                    transitions[state]++;
+                if (isBurning(state))
+                    burningCount++;
+            }
+        return burningCount;
+    }
+
+    private void notifyChangedCells() {
+        for (int column = 0; column < columnsCount; column++)
+            for (int row = 0; row < rowsCount; row++)
+                if (front.get(column, row) != back.get(column, row))
+                    changesListener.cellChanged(column, row);
+    }
+
+    private void prepareFrontier() {
+        if (!frontierValid)
+            rebuildFrontier();
+
+        changes.clear();
+        preparedNeighborLookups = 0;
+        for (int i = 0; i < burningCells.size(); i++) {
+            final long position = burningCells.get(i);
+            final int column = columnOf(position);
+            final int row = rowOf(position);
+            final int state = front.get(column, row);
+            if (isBurning(state) && visit(column, row)) {
+                changes.add(changeOf(position, ForestRule.next(state, 0)));
+                igniteTreesAround(column, row);
+            }
+        }
+
+        // the set keeps the capacity of the largest front, so only the visited cells are removed
+        preparedCellsExamined = visitedCells.size();
+        for (int i = 0; i < visitedCells.size(); i++)
+            visited.remove(visitedCells.get(i));
+        visitedCells.clear();
+    }
+
+    private void igniteTreesAround(final int column, final int row) {
+        final SpreadKernel kernel = weighingKernel();
+        final int[] columns = kernel == null ? NEIGHBORS_COLUMNS : kernel.getColumnOffsets();
+        final int[] rows = kernel == null ? NEIGHBORS_ROWS : kernel.getRowOffsets();
+        preparedNeighborLookups += columns.length;
+        for (int i = 0; i < columns.length; i++) {
+            // the trees having this cell as neighbor, against the offset
+            final int neighborColumn = column - columns[i];
+            final int neighborRow = row - rows[i];
+            if (getState(neighborColumn, neighborRow) == ForestRule.TREE && visit(neighborColumn, neighborRow)) {
+                final int scan = kernel == null
+                        ? scanNeighbors(neighborColumn, neighborRow)
+                        : scanKernel(kernel, neighborColumn, neighborRow);
+                preparedNeighborLookups += scan >>> FLAMMABILITY_BITS;
+                if (ForestRule.ignites(scan & FLAMMABILITY_MASK))
+                    changes.add(changeOf(positionOf(neighborColumn, neighborRow), ForestRule.FIRE));
+            }
+        }
+    }
+
+    private boolean visit(final int column, final int row) {
+        final long position = positionOf(column, row);
+        if (!visited.add(position))
+            return false;
+
+        visitedCells.add(position);
+        return true;
+    }
+
+    private void applyChanges() {
+        burningCells.clear();
+        for (int i = 0; i < changes.size(); i++) {
+            final long change = changes.get(i);
+            final long position = change >>> STATE_BITS;
+            final int state = (int) (change & STATE_MASK);
+            front.set(columnOf(position), rowOf(position), (byte) state);
+            if (isBurning(state))
+                burningCells.add(position);
+            if (transitions != null)
+                transitions[state]++;
+            if (changesListener != null)
+                changesListener.cellChanged(columnOf(position), rowOf(position));
+        }
+        changes.clear();
+    }
+
+    private void rebuildFrontier() {
+        burningCells.clear();
+        front.forEachNonZero(columnsCount, rowsCount, (column, row, state) -> {
+            if (isBurning(state))
+                burningCells.add(positionOf(column, row));
+        });
+        frontierValid = true;
+    }
+
+    private static boolean isBurning(final int state) {
+        return state == ForestRule.FIRE || state == ForestRule.BURNED;
+    }
+
+    private static long positionOf(final int column, final int row) {
+        return (long) column << ROW_BITS | row;
+    }
+
+    private static int columnOf(final long position) {
+        return (int) (position >>> ROW_BITS);
+    }
+
+    private static int rowOf(final long position) {
+        return (int) (position & ROW_MASK);
+    }
+
+    private static long changeOf(final long position, final int state) {
+        return position << STATE_BITS | state;
+    }
+
+    /**
+     * Tells whether the back store can take the next generation from several threads: it is only
+     * prepared where the front holds data, while a stochastic rule grows trees on empty cells too,
+     * which a sparse store would have to allocate while other threads write to it.
+     */
+    private boolean isConcurrentlyWritable() {
+        return stochasticRule == null || !(back instanceof TileGridStore);
+    }
+
+    private boolean isPadded() {
+        return front instanceof PaddedGridStore && back instanceof PaddedGridStore
+                && ((PaddedGridStore) front).isBoundedTo(columnsCount, rowsCount)
+                && ((PaddedGridStore) back).isBoundedTo(columnsCount, rowsCount)
+                && ((PaddedGridStore) front).getStride() == ((PaddedGridStore) back).getStride();
+    }
+
+    /**
+     * Evolves the given columns, counting the transitions in the given array unless null.
+     */
+    private long evolveColumns(final int fromColumn, final int toColumn, @Nullable final long[] counts) {
+        final StochasticForestRule rule = stochasticRule;
+        final long stream = rule == null ? 0 : rule.streamOf(generation);
+        final SpreadKernel kernel = rule == null ? weighingKernel() : null;
+        if (isPadded()) {
+            final var paddedFront = (PaddedGridStore) front;
+            final var paddedBack = (PaddedGridStore) back;
+            if (rule != null)
+                return evolvePaddedColumns(paddedFront, paddedBack, fromColumn, toColumn, counts, rule, stream);
+            else if (kernel != null)
+                return evolveWeightedPaddedColumns(paddedFront, paddedBack, fromColumn, toColumn, counts, kernel);
+            else
+                return evolvePaddedColumns(paddedFront, paddedBack, fromColumn, toColumn, counts);
+        }
+
+        // scanned in blocks of rows, so that the neighbors of a column are still cached for the next one
+        long neighborLookups = 0;
+        for (int fromRow = 0; fromRow < rowsCount; fromRow += SCAN_BLOCK_ROWS) {
+            final int toRow = Math.min(fromRow + SCAN_BLOCK_ROWS, rowsCount);
+            for (int column = fromColumn; column < toColumn; column++)
+                for (int row = fromRow; row < toRow; row++) {
+                    final int state = front.get(column, row);
+                    final int next;
+                    if (rule != null) {
+                        int burning = 0;
+                        if (state == ForestRule.TREE) {
+                            neighborLookups += NEIGHBORS_COLUMNS.length;
+                            burning = countBurningNeighbors(column, row);
+                        }
+                        next = rule.next(state, burning, stream, column, row);
+                    } else {
+                        int flammability = 0;
+                        if (state == ForestRule.TREE) {
+                            final int scan = kernel == null
+                                    ? scanNeighbors(column, row)
+                                    : scanKernel(kernel, column, row);
+                            neighborLookups += scan >>> FLAMMABILITY_BITS;
+                            flammability = scan & FLAMMABILITY_MASK;
+                        }
+                        next = ForestRule.next(state, flammability);
+                    }
+                    back.set(column, row, (byte) next);
+                    if (counts != null)
+                        countTransition(counts, state, next);
+                }
+        }
+        return neighborLookups;
+    }
+
+    /**
+     * Evolves the given columns reading all eight neighbors of every tree, the halo standing
+     * for the cells outside the forest. The back store must be prepared for concurrent writes.
+     */
+    private long evolvePaddedColumns(final PaddedGridStore front, final PaddedGridStore back,
+                                     final int fromColumn, final int toColumn, @Nullable final long[] counts) {
+        final byte[] cells = front.getCells();
+        final byte[] nextCells = back.getCells();
+        final int stride = front.getStride();
+        long trees = 0;
+        for (int row = 0; row < rowsCount; row++) {
+            final int fromIndex = front.indexOf(fromColumn, row);
+            final int toIndex = fromIndex + toColumn - fromColumn;
+            for (int index = fromIndex; index < toIndex; index++) {
+                final int state = cells[index];
+                int flammability = 0;
+                if (state == ForestRule.TREE) {
+                    trees++;
+                    flammability = ForestRule.flammabilityOf(cells[index - stride - 1])
+                            + ForestRule.flammabilityOf(cells[index - stride])
+                            + ForestRule.flammabilityOf(cells[index - stride + 1])
+                            + ForestRule.flammabilityOf(cells[index - 1])
+                            + ForestRule.flammabilityOf(cells[index + 1])
+                            + ForestRule.flammabilityOf(cells[index + stride - 1])
+                            + ForestRule.flammabilityOf(cells[index + stride])
+                            + ForestRule.flammabilityOf(cells[index + stride + 1]);
+                }
+                final int next = ForestRule.next(state, flammability);
+                nextCells[index] = (byte) next;
+                if (counts != null)
+                    countTransition(counts, state, next);
+            }
+        }
+        return trees * NEIGHBORS_COLUMNS.length;
+    }
+
+    /**
+     * Same as {@link #evolvePaddedColumns(PaddedGridStore, PaddedGridStore, int, int, long[])}
+     * with the given stochastic rule, counting the burning neighbors of every tree.
+     */
+    private long evolvePaddedColumns(final PaddedGridStore front, final PaddedGridStore back,
+                                     final int fromColumn, final int toColumn, @Nullable final long[] counts,
+                                     final StochasticForestRule rule, final long stream) {
+        final byte[] cells = front.getCells();
+        final byte[] nextCells = back.getCells();
+        final int stride = front.getStride();
+        long trees = 0;
+        for (int row = 0; row < rowsCount; row++) {
+            final int fromIndex = front.indexOf(fromColumn, row);
+            final int toIndex = fromIndex + toColumn - fromColumn;
+            for (int index = fromIndex, column = fromColumn; index < toIndex; index++, column++) {
+                final int state = cells[index];
+                int burning = 0;
+                if (state == ForestRule.TREE) {
+                    trees++;
+                    burning = StochasticForestRule.burningOf(cells[index - stride - 1])
+                            + StochasticForestRule.burningOf(cells[index - stride])
+                            + StochasticForestRule.burningOf(cells[index - stride + 1])
+                            + StochasticForestRule.burningOf(cells[index - 1])
+                            + StochasticForestRule.burningOf(cells[index + 1])
+                            + StochasticForestRule.burningOf(cells[index + stride - 1])
+                            + StochasticForestRule.burningOf(cells[index + stride])
+                            + StochasticForestRule.burningOf(cells[index + stride + 1]);
+                }
+                final int next = rule.next(state, burning, stream, column, row);
+                nextCells[index] = (byte) next;
+                if (counts != null)
+                    countTransition(counts, state, next);
+            }
+        }
+        return trees * NEIGHBORS_COLUMNS.length;
+    }
+
+    /**
+     * Compiles the weighing kernel into index offsets for the padded stores and the terrain,
+     * unless already compiled for them.
+     */
+    private void compileKernel() {
+        final SpreadKernel kernel = stochasticRule == null ? weighingKernel() : null;
+        if (kernel == null || !isPadded())
+            return;
+
+        final int stride = ((PaddedGridStore) front).getStride();
+        if (kernel != compiledKernel || stride != compiledStride) {
+            kernelIndexOffsets = kernel.indexOffsetsOf(stride);
+            compiledStride = stride;
+        }
+        if (terrain != null && (kernel != compiledKernel || terrain.getStride() != compiledTerrainStride)) {
+            kernelTerrainOffsets = kernel.indexOffsetsOf(terrain.getStride());
+            compiledTerrainStride = terrain.getStride();
+        }
+        compiledKernel = kernel;
+    }
+
+    /**
+     * Same as {@link #evolvePaddedColumns(PaddedGridStore, PaddedGridStore, int, int, long[])} weighing the
+     * neighbors with the given {@linkplain #compileKernel() compiled} kernel. The halo being one cell
+     * wide, trees nearer to the edges than the kernel radius, and trees outside the terrain, are
+     * scanned through {@link #getState(int, int)}.
+     */
+    private long evolveWeightedPaddedColumns(final PaddedGridStore front, final PaddedGridStore back,
+                                             final int fromColumn, final int toColumn,
+                                             @Nullable final long[] counts, final SpreadKernel kernel) {
+        final byte[] cells = front.getCells();
+        final byte[] nextCells = back.getCells();
+        final int[] weights = kernel.getWeights();
+        final int[] offsets = kernelIndexOffsets;
+        final Terrain terrain = this.terrain;
+        final int[] terrainOffsets = kernelTerrainOffsets;
+        final byte[] fuels = terrain == null ? null : terrain.getFuels();
+        final byte[] elevations = terrain == null ? null : terrain.getElevations();
+        final int inset = kernel.getRadius() - 1;
+        long trees = 0;
+        for (int row = 0; row < rowsCount; row++) {
+            final boolean edgeRow = row < inset || row >= rowsCount - inset;
+            final int fromIndex = front.indexOf(fromColumn, row);
+            final int toIndex = fromIndex + toColumn - fromColumn;
+            for (int index = fromIndex, column = fromColumn; index < toIndex; index++, column++) {
+                final int state = cells[index];
+                int flammability = 0;
+                if (state == ForestRule.TREE) {
+                    trees++;
+                    if (edgeRow || column < inset || column >= columnsCount - inset
+                            || terrain != null && !terrain.contains(column, row))
+                        flammability = scanKernel(kernel, column, row) & FLAMMABILITY_MASK;
+                    else if (terrain == null) {
+                        int spread = 0;
+                        for (int i = 0; i < weights.length; i++)
+                            spread += weights[i] * ForestRule.flammabilityOf(cells[index + offsets[i]]);
+                        flammability = spread >= SpreadKernel.IGNITION_SPREAD ? ForestRule.FIRE : 0;
+                    } else {
+                        // slopes only matter around burning neighbors, a few of the trees at most
+                        final int terrainIndex = terrain.indexOf(column, row);
+                        final int elevation = Byte.toUnsignedInt(elevations[terrainIndex]);
+                        long spread = 0;
+                        for (int i = 0; i < weights.length; i++) {
+                            final int neighborFlammability = ForestRule.flammabilityOf(cells[index + offsets[i]]);
+                            if (neighborFlammability != 0)
+                                spread += (long) weights[i] * neighborFlammability * terrain.slopeFactorOf(elevation
+                                        - Byte.toUnsignedInt(elevations[terrainIndex + terrainOffsets[i]]));
+                        }
+                        final int fuel = Byte.toUnsignedInt(fuels[terrainIndex]);
+                        flammability = spread >= terrain.ignitionSpreadOf(fuel) ? ForestRule.FIRE : 0;
+                    }
+                }
+                final int next = ForestRule.next(state, flammability);
+                nextCells[index] = (byte) next;
+                if (counts != null)
+                    countTransition(counts, state, next);
+            }
+        }
+        return trees * weights.length;
+    }
+
+    private static void countTransition(final long[] counts, final int state, final int next) {
+        if (next != state)
+            counts[next]++;
+        if (isBurning(next))
+            counts[ForestRule.STATES_COUNT]++;
+    }
+
+    private int countBurningNeighbors(final int column, final int row) {
+        int burning = 0;
+        for (int i = 0; i < NEIGHBORS_COLUMNS.length; i++)
+            burning += StochasticForestRule.burningOf(getState(column + NEIGHBORS_COLUMNS[i], row + NEIGHBORS_ROWS[i]));
+        return burning;
+    }
+
+    /**
+     * Same as {@link #scanNeighbors(int, int)} weighing the neighbors with the given kernel and
+     * the terrain, the flammability being {@link ForestRule#FIRE} if the tree ignites, zero otherwise.
+     */
+    private int scanKernel(final SpreadKernel kernel, final int column, final int row) {
+        final int[] columns = kernel.getColumnOffsets();
+        final int[] rows = kernel.getRowOffsets();
+        final int[] weights = kernel.getWeights();
+        final Terrain terrain = this.terrain;
+        long spread = 0;
+        final long ignitionSpread;
+        if (terrain == null) {
+            for (int i = 0; i < weights.length; i++)
+                spread += weights[i] * ForestRule.flammabilityOf(getState(column + columns[i], row + rows[i]));
+            ignitionSpread = SpreadKernel.IGNITION_SPREAD;
+        } else {
+            final int elevation = terrain.getElevation(column, row);
+            for (int i = 0; i < weights.length; i++) {
+                final int neighborColumn = column + columns[i];
+                final int neighborRow = row + rows[i];
+                spread += (long) weights[i] * ForestRule.flammabilityOf(getState(neighborColumn, neighborRow))
+                        * terrain.slopeFactorOf(elevation - terrain.getElevation(neighborColumn, neighborRow));
+            }
+            ignitionSpread = terrain.ignitionSpreadOf(terrain.getFuel(column, row));
+        }
+        return weights.length << FLAMMABILITY_BITS | (spread >= ignitionSpread ? ForestRule.FIRE : 0);
+    }
+
+    /**
+     * Returns the flammability around the given cell, with the number of neighbors
+     * it took to know it in the bits above {@link #FLAMMABILITY_BITS}.
+     */
+    private int scanNeighbors(final int column, final int row) {
+        int flammability = 0;
+        int i = 0;
+        while (i < NEIGHBORS_COLUMNS.length && !ForestRule.ignites(flammability)) {
+            flammability += ForestRule.flammabilityOf(getState(column + NEIGHBORS_COLUMNS[i], row + NEIGHBORS_ROWS[i]));
+            i++;
+        }
+        return i << FLAMMABILITY_BITS | flammability;
+    }
+
+    /**
+     * Returns an independent copy of this engine, taken in constant time: the cells are shared
+     * and only duplicated, chunk by chunk, when either engine writes to them.
+     * This engine must not be modified while the fork is being taken.
+     */
+    @NotNull
+    public ForestEngine fork() {
+        final var fork = new ForestEngine(front.fork(), back.fork());
+        fork.columnsCount = columnsCount;
+        fork.rowsCount = rowsCount;
+        fork.generation = generation;
+        fork.stepMode = stepMode;
+        fork.stochasticRule = stochasticRule;
+        fork.spreadKernel = spreadKernel;
+        fork.terrain = terrain;
+        fork.retentionPolicy = retentionPolicy;
+        fork.retainedColumnsCount = retainedColumnsCount;
+        fork.retainedRowsCount = retainedRowsCount;
+        fork.setParallelism(parallelism);
+        return fork;
+    }
+
+    /**
+     * Makes this engine a copy of the given one, sharing the cells as {@link #fork()} does.
+     */
+    public void copyFrom(@NotNull final ForestEngine engine) {
+        this.columnsCount = engine.columnsCount;
+        this.rowsCount = engine.rowsCount;
+        this.generation = engine.generation;
+        this.retainedColumnsCount = engine.retainedColumnsCount;
+        this.retainedRowsCount = engine.retainedRowsCount;
+        final int copiedColumnsCount = Math.max(columnsCount, retainedColumnsCount);
+        final int copiedRowsCount = Math.max(rowsCount, retainedRowsCount);
+        front.copyFrom(engine.front, copiedColumnsCount, copiedRowsCount);
+        back.copyFrom(engine.back, copiedColumnsCount, copiedRowsCount);
+        boundPaddedStores();
+        nextGenerationPrepared = false;
+        frontierValid = false;
+        if (changesListener != null)
+            changesListener.forestReset();
+    }
+
+    /**
+     * Evolves a range of columns, split in halves down to bands of the given width. The tree of
+     * actions is built once per size and {@linkplain #reinitialize() reinitialized} every generation,
+     * so that parallel generations allocate nothing.
+     */
+    private final class BandAction extends RecursiveAction {
+
+        private static final long serialVersionUID = -2474409637046283785L;
+
+        private final int fromColumn;
+        private final int toColumn;
+        private final int bandWidth;
+
+        private final BandAction left;
+        private final BandAction right;
+
+        private long neighborLookups;
+        private final long[] transitions = new long[TRANSITIONS_LENGTH];
+
+        private BandAction(final int fromColumn, final int toColumn, final int bandWidth) {
+            this.fromColumn = fromColumn;
+            this.toColumn = toColumn;
+            this.bandWidth = bandWidth;
+
+            if (toColumn - fromColumn <= bandWidth) {
+                left = null;
+                right = null;
+            } else {
+                final int middle = (fromColumn + toColumn) >>> 1;
+                left = new BandAction(fromColumn, middle, bandWidth);
+                right = new BandAction(middle, toColumn, bandWidth);
+            }
+        }
+
+        @Override
+        protected void compute() {
+            if (left == null) {
+                if (bandsCounted)
+                    Arrays.fill(transitions, 0);
+                neighborLookups = evolveColumns(fromColumn, toColumn, bandsCounted ? transitions : null);
+            } else {
+                left.reinitialize();
+                right.reinitialize();
+                invokeAll(left, right);
+                neighborLookups = left.neighborLookups + right.neighborLookups;
+                if (bandsCounted)
+                    for (int i = 0; i < TRANSITIONS_LENGTH; i++)
+                        transitions[i] = left.transitions[i] + right.transitions[i];
+            }
+        }
+    }
+}
@@ -12,21 +12,23 @@
 
 package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
 
-import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.Point;
-import java.awt.Toolkit;
 import java.awt.event.MouseEvent;
-import java.util.LinkedList;
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import dz.univ_ouargla.mi.m1_fond_2018.mos.common.AbstractCellsManager;
-import dz.univ_ouargla.mi.m1_fond_2018.mos.common.IntProperty;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public final class ForestKeeper extends AbstractCellsManager {
 
@@ -34,24 +36,25 @@ public final class ForestKeeper extends AbstractCellsManager {
     public static final int MAX_LENGTH = 46_340;
 
     private static final Color BORDER_COLOR = new Color(175, 117, 55);
-    private static final int CELLS_IN_ONE_DATA_CHUNK;
 
-    static {
-        final var screenSize = Toolkit.getDefaultToolkit().getScreenSize();
-        final var halfScreenResolution = screenSize.width * screenSize.height / 2;
-        final var defaultCellSize = IntProperty.CELL_SIZE.getDefault() + IntProperty.BORDER_WIDTH.getDefault();
-        CELLS_IN_ONE_DATA_CHUNK = halfScreenResolution / defaultCellSize;
+    public enum RenderMode {
+        DIRECT, CACHED_IMAGE, PIXELS
     }
 
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
-    private final List<byte[]> data = new LinkedList<>();
-    private final Cell cell = new Cell();
-    private final Point[] neighbors = {
-            new Point(-1, -1), new Point(0, -1), new Point(1, -1),
-            new Point(-1, 0), new Point(1, 0),
-            new Point(-1, 1), new Point(0, 1), new Point(1, 1),
-    };
+    private final Lock evolutionLock = new ReentrantLock();
+
+    private final ForestEngine engine;
+    private final GridImageCache imageCache = new GridImageCache();
+
+    private volatile RenderMode renderMode = RenderMode.DIRECT;
+
+    private volatile ForestMetrics metrics;
+
+    private volatile ForestRecorder recorder;
+    private volatile ForestReplay replay;
+    private final ForestReplay.Target replayTarget = new ReplayTarget();
 
     private volatile int columnsCount;
     private volatile int rowsCount;
@@ -60,45 +63,148 @@ public final class ForestKeeper extends AbstractCellsManager {
     private volatile int cellSize;
     private volatile int borderWidth;
 
-    public void evolve() {
+    public ForestKeeper() {
+        this(new ForestEngine());
+    }
+
+    public ForestKeeper(@NotNull final ForestEngine engine) {
+        this.engine = Objects.requireNonNull(engine);
+        this.columnsCount = engine.getColumnsCount();
+        this.rowsCount = engine.getRowsCount();
+    }
+
+    @NotNull
+    public RenderMode getRenderMode() {
+        return renderMode;
+    }
+
+    public void setRenderMode(@NotNull final RenderMode renderMode) {
+        this.renderMode = Objects.requireNonNull(renderMode);
+    }
+
+    @Nullable
+    public ForestMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(@Nullable final ForestMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Nullable
+    public StochasticForestRule getStochasticRule() {
+        lock.readLock().lock();
+        try {
+            return engine.getStochasticRule();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Switches the forest to the given stochastic rule, or back to {@link ForestRule} when null,
+     * from the next generation on.
+     */
+    public void setStochasticRule(@Nullable final StochasticForestRule stochasticRule) {
         lock.writeLock().lock();
         try {
-            for (int column = 0; column < columnsCount; column++)
-                for (int row = 0; row < rowsCount; row++) {
-                    final int index = indexOf(column, row);
-                    cell.importState(getDataAt(index));
-                    cell.evolve();
-
-                    int i = 0;
-                    while (cell.stillEvolving() && i < neighbors.length) {
-                        final Point neighbor = neighbors[i++];
-                        cell.consider(getCellData(column + neighbor.x, row + neighbor.y));
-                    }
-
-                    setDataAt(index, cell.exportState());
-                }
+            engine.setStochasticRule(stochasticRule);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
 
-            for (int column = 0; column < columnsCount; column++)
-                for (int row = 0; row < rowsCount; row++) {
-                    final int index = indexOf(column, row);
-                    final byte data = getDataAt(index);
-                    final int newData = Byte.toUnsignedInt(data) >> 4;
-                    setDataAt(index, (byte) newData);
-                }
+    @Nullable
+    public SpreadKernel getSpreadKernel() {
+        lock.readLock().lock();
+        try {
+            return engine.getSpreadKernel();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
 
-            cell.reset();
+    public void setSpreadKernel(@Nullable final SpreadKernel spreadKernel) {
+        lock.writeLock().lock();
+        try {
+            engine.setSpreadKernel(spreadKernel);
         } finally {
             lock.writeLock().unlock();
         }
     }
 
+    @Nullable
+    public Terrain getTerrain() {
+        lock.readLock().lock();
+        try {
+            return engine.getTerrain();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the terrain the fire spreads over; it must not be modified while the forest evolves.
+     */
+    public void setTerrain(@Nullable final Terrain terrain) {
+        lock.writeLock().lock();
+        try {
+            engine.setTerrain(terrain);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void evolve() {
+        evolutionLock.lock();
+        try {
+            if (replay != null) {
+                replayNextGeneration();
+                return;
+            }
+
+            final var currentMetrics = metrics;
+            final boolean measured = currentMetrics != null && currentMetrics.isEnabled();
+            final long start = measured ? System.nanoTime() : 0;
+
+            lock.readLock().lock();
+            try {
+                // decided before preparing, so that full scans count the transitions as they evolve
+                engine.setTransitionsCounted(measured);
+                engine.prepareNextGeneration();
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            lock.writeLock().lock();
+            try {
+                if (!engine.isNextGenerationPrepared())
+                    engine.prepareNextGeneration();
+                engine.publishNextGeneration();
+                if (measured)
+                    currentMetrics.generationPublished(System.nanoTime() - start, engine);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            evolutionLock.unlock();
+        }
+    }
+
+    /**
+     * Fits the forest to the given size; a size without any area, as given by a component
+     * not laid out yet, leaves it as it is instead of hiding, and possibly trimming, every cell.
+     */
     public void pack(final Dimension size, final int cellSize, final int borderWidth) {
+        if (size.width <= 0 || size.height <= 0)
+            return;
+
         lock.writeLock().lock();
         try {
             final int newColumnsCount = countCellsIn(size.width, cellSize, borderWidth);
             final int newRowsCount = countCellsIn(size.height, cellSize, borderWidth);
 
-            ensureCellsAvailable(newColumnsCount, newRowsCount);
+            engine.resize(newColumnsCount, newRowsCount);
 
             this.columnsCount = newColumnsCount;
             this.rowsCount = newRowsCount;
@@ -112,29 +218,69 @@ public final class ForestKeeper extends AbstractCellsManager {
         return Math.max(pureLength, 0) / (borderWidth + cellSize);
     }
 
-    private void ensureCellsAvailable(final int columnsCount, final int rowsCount) {
-        final var longestDimension = Math.max(columnsCount, rowsCount);
-        ensureCellsAtLeast(longestDimension * longestDimension);
-    }
-
-    private void ensureCellsAtLeast(final int minimumCells) {
-        final List<byte[]> data = this.data;
-        while (data.size() * CELLS_IN_ONE_DATA_CHUNK < minimumCells)
-            data.add(new byte[CELLS_IN_ONE_DATA_CHUNK]);
-    }
-
     public void paint(final Graphics2D g, final Dimension size, final int cellSize, final int borderWidth) {
+        final var currentMetrics = metrics;
+        final boolean measured = currentMetrics != null && currentMetrics.isEnabled();
+        final long start = measured ? System.nanoTime() : 0;
+
         lock.readLock().lock();
         try {
             this.size = size;
             this.cellSize = cellSize;
             this.borderWidth = borderWidth;
 
-            drawBackground(g);
-            drawGrid(g);
+            if (renderMode == RenderMode.CACHED_IMAGE)
+                paintCached(g);
+            else if (renderMode == RenderMode.PIXELS)
+                paintPixels(g);
+            else {
+                drawBackground(g);
+                drawGrid(g, true, false);
+            }
         } finally {
             lock.readLock().unlock();
         }
+
+        if (measured)
+            currentMetrics.painted(System.nanoTime() - start);
+    }
+
+    private void paintCached(final Graphics2D g) {
+        final boolean reset = imageCache.update(size, cellSize, borderWidth, columnsCount, rowsCount);
+
+        final var imageGraphics = imageCache.getGraphics();
+        if (reset)
+            drawBackground(imageGraphics);
+        drawGrid(imageGraphics, reset, true);
+
+        g.drawImage(imageCache.getImage(), 0, 0, null);
+    }
+
+    private void paintPixels(final Graphics2D g) {
+        final boolean reset = imageCache.update(size, cellSize, borderWidth, columnsCount, rowsCount);
+        final var image = imageCache.getImage();
+
+        final int cellBox = cellSize + borderWidth;
+        final var widthMargin = calcWidthMargin(size, cellBox);
+        final var heightMargin = calcHeightMargin(size, cellBox);
+
+        if (reset) {
+            final var imageGraphics = imageCache.getGraphics();
+            drawBackground(imageGraphics);
+            drawBorders(imageGraphics, borderWidth, cellBox, widthMargin, heightMargin);
+        }
+
+        final var halfBorder = borderWidth - borderWidth / 2;
+        final int columnsOffset = widthMargin + halfBorder;
+        final int rowsOffset = heightMargin + halfBorder;
+        for (int row = 0; row < rowsCount; row++)
+            for (int column = 0; column < columnsCount; column++) {
+                final int state = engine.getState(column, row);
+                if (imageCache.markRendered(column, row, state))
+                    imageCache.drawSprite(state, column * cellBox + columnsOffset, row * cellBox + rowsOffset);
+            }
+
+        g.drawImage(image, 0, 0, null);
     }
 
     private void drawBackground(final Graphics g) {
@@ -142,16 +288,17 @@ public final class ForestKeeper extends AbstractCellsManager {
         g.fillRect(0, 0, size.width - 1, size.height - 1);
     }
 
-    private void drawGrid(final Graphics2D g) {
+    private void drawGrid(final Graphics2D g, final boolean bordersNeeded, final boolean changedCellsOnly) {
         final int cellBox = cellSize + borderWidth;
 
         final var widthMargin = calcWidthMargin(size, cellBox);
         final var heightMargin = calcHeightMargin(size, cellBox);
 
-        drawBorders(g, borderWidth, cellBox, widthMargin, heightMargin);
+        if (bordersNeeded)
+            drawBorders(g, borderWidth, cellBox, widthMargin, heightMargin);
 
         final var halfBorder = borderWidth - borderWidth / 2;
-        drawCells(g, cellBox, widthMargin + halfBorder, heightMargin + halfBorder);
+        drawCells(g, cellBox, widthMargin + halfBorder, heightMargin + halfBorder, changedCellsOnly);
     }
 
     private int calcHeightMargin(final Dimension size, final int cellBox) {
@@ -164,87 +311,47 @@ public final class ForestKeeper extends AbstractCellsManager {
         return fullMargin / 2;
     }
 
-    private void drawCells(final Graphics2D g, final int cellBoxSize, final int columnsOffset, final int rowsOffset) {
+    private void drawCells(final Graphics2D g, final int cellBoxSize, final int columnsOffset, final int rowsOffset,
+                           final boolean changedCellsOnly) {
         for (int column = 0; column < columnsCount; column++)
             for (int row = 0; row < rowsCount; row++) {
-                final int x = column * cellBoxSize + columnsOffset;
-                final int y = row * cellBoxSize + rowsOffset;
-                cell.importState(getCellData(column, row));
-                cell.draw(g, x, y, cellSize);
+                final int state = engine.getState(column, row);
+                if (!changedCellsOnly || imageCache.markRendered(column, row, state)) {
+                    final int x = column * cellBoxSize + columnsOffset;
+                    final int y = row * cellBoxSize + rowsOffset;
+                    Cell.draw(g, Cell.stateOf(state), x, y, cellSize);
+                }
             }
-
-        cell.reset();
-    }
-
-    private int indexOf(final int column, final int row) {
-        if (column < row)
-            return row * row + row * 2 - column;
-        else if (column > row)
-            return column * column + row;
-        else
-            return column * column + column;
-    }
-
-    private byte getCellData(final int column, final int row) {
-        if (column < 0 || row < 0 || column >= columnsCount || row >= rowsCount)
-            return 0;
-        else
-            return getDataAt(indexOf(column, row));
-    }
-
-    private byte getDataAt(final int index) {
-        final byte[] cellsData = data.get(index / CELLS_IN_ONE_DATA_CHUNK);
-        return cellsData[index % CELLS_IN_ONE_DATA_CHUNK];
-    }
-
-    private void setCellData(final int column, final int row, final byte data) {
-        if (column < 0 || row < 0 || column >= columnsCount || row >= rowsCount)
-            throw new IndexOutOfBoundsException("for column: " + column + " and row: " + row);
-        else
-            setDataAt(indexOf(column, row), data);
-    }
-
-    private void setDataAt(final int index, final byte cellData) {
-        final byte[] cellsData = data.get(index / CELLS_IN_ONE_DATA_CHUNK);
-        cellsData[index % CELLS_IN_ONE_DATA_CHUNK] = cellData;
     }
 
     private void drawBorders(final Graphics2D g, final int borderWidth, final int cellBoxSize,
                              final int columnsOffset, final int rowsOffset) {
 
         g.setColor(BORDER_COLOR);
-        g.setStroke(new BasicStroke(borderWidth));
 
         final var columnsLimit = cellBoxSize * columnsCount + columnsOffset;
         final var rowsLimit = cellBoxSize * rowsCount + rowsOffset;
 
-        drawColumns(g, cellBoxSize, columnsOffset, rowsOffset, rowsLimit, columnsCount);
-        drawRows(g, cellBoxSize, columnsOffset, rowsOffset, columnsLimit, rowsCount);
-    }
+        // filled rectangles cover exactly the pixels of lines stroked borderWidth wide with square caps
+        // (a zero width stroke being one pixel wide), without going through the stroke pipeline
+        // that allocates a path per line
+        final int lineWidth = Math.max(borderWidth, 1);
+        final int lineStart = -lineWidth / 2;
+        final int columnsLength = columnsLimit - columnsOffset + lineWidth;
+        final int rowsLength = rowsLimit - rowsOffset + lineWidth;
 
-    private void drawColumns(final Graphics2D g, final int cellBoxSize,
-                             final int columnsOffset, final int rowsOffset,
-                             final int rowsLimit, final int columnsCount) {
-        g.drawLine(columnsOffset, rowsOffset, columnsOffset, rowsLimit);
+        for (int i = 0; i <= columnsCount; i++)
+            g.fillRect(cellBoxSize * i + columnsOffset + lineStart, rowsOffset + lineStart, lineWidth, rowsLength);
 
-        for (var i = 1; i <= columnsCount; i++) {
-            final var columnOffset = cellBoxSize * i + columnsOffset;
-            g.drawLine(columnOffset, rowsOffset, columnOffset, rowsLimit);
-        }
-    }
-
-    private void drawRows(final Graphics2D g, final int cellBoxSize,
-                          final int columnsOffset, final int rowsOffset,
-                          final int columnsLimit, final int rowsCount) {
-        g.drawLine(columnsOffset, rowsOffset, columnsLimit, rowsOffset);
-
-        for (int i = 1; i <= rowsCount; i++) {
-            final var rowOffset = cellBoxSize * i + rowsOffset;
-            g.drawLine(columnsOffset, rowOffset, columnsLimit, rowOffset);
-        }
+        for (int i = 0; i <= rowsCount; i++)
+            g.fillRect(columnsOffset + lineStart, cellBoxSize * i + rowsOffset + lineStart, columnsLength, lineWidth);
     }
 
     public boolean handleClick(final MouseEvent event, final Cell.State cursorType) {
+        final var currentMetrics = metrics;
+        final boolean measured = currentMetrics != null && currentMetrics.isEnabled();
+        final long start = measured ? System.nanoTime() : 0;
+
         lock.writeLock().lock();
         try {
             final int inputX = event.getX();
@@ -257,6 +364,8 @@ public final class ForestKeeper extends AbstractCellsManager {
 
         } finally {
             lock.writeLock().unlock();
+            if (measured)
+                currentMetrics.clicked(System.nanoTime() - start);
         }
     }
 
@@ -279,12 +388,10 @@ public final class ForestKeeper extends AbstractCellsManager {
 
     private boolean handleClickOn(final int column, final int row, final Cell.State cursorType) {
         if (column < columnsCount && row < rowsCount) {
-            cell.importState(getCellData(column, row));
-
-            final boolean stateChanged = cell.onClick(cursorType);
+            final boolean stateChanged = engine.getState(column, row) != cursorType.ordinal();
 
             if (stateChanged)
-                setCellData(column, row, cell.exportState());
+                engine.setState(column, row, cursorType.ordinal());
 
             return stateChanged;
         } else
@@ -292,14 +399,158 @@ public final class ForestKeeper extends AbstractCellsManager {
     }
 
     public Dimension getDimensions() {
+        return getDimensions(new Dimension());
+    }
+
+    /**
+     * Stores the columns and rows counts in the given dimension and returns it,
+     * as {@link java.awt.Component#getSize(Dimension)} does, for callers polling every frame.
+     */
+    public Dimension getDimensions(@NotNull final Dimension dimensions) {
+        lock.readLock().lock();
+        try {
+            dimensions.setSize(columnsCount, rowsCount);
+            return dimensions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void save(@NotNull final Path path) throws IOException {
         lock.readLock().lock();
         try {
-            return new Dimension(columnsCount, rowsCount);
+            ForestSnapshot.save(engine, path);
         } finally {
             lock.readLock().unlock();
         }
     }
 
+    public void load(@NotNull final Path path) throws IOException {
+        lock.writeLock().lock();
+        try {
+            ForestSnapshot.load(engine, path);
+            // the part of the loaded forest outside the panel must survive the shrink to it
+            engine.retain(engine.getColumnsCount(), engine.getRowsCount());
+            fitLoadedForest(engine.getColumnsCount(), engine.getRowsCount());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void fitLoadedForest(final int loadedColumnsCount, final int loadedRowsCount) {
+        engine.resize(columnsCount, rowsCount);
+        for (int column = 0; column < columnsCount; column++)
+            for (int row = column < loadedColumnsCount ? loadedRowsCount : 0; row < rowsCount; row++)
+                engine.setState(column, row, ForestRule.EMPTY);
+    }
+
+    public boolean isRecording() {
+        return recorder != null;
+    }
+
+    public void startRecording(@NotNull final Path path) throws IOException {
+        lock.writeLock().lock();
+        try {
+            closeReplay();
+            closeRecorder();
+            recorder = new ForestRecorder(engine, path);
+            engine.setChangesListener(recorder);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void stopRecording() throws IOException {
+        lock.writeLock().lock();
+        try {
+            closeRecorder();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void closeRecorder() throws IOException {
+        if (recorder != null) {
+            engine.setChangesListener(null);
+            final var closing = recorder;
+            recorder = null;
+            closing.close();
+        }
+    }
+
+    public boolean isReplaying() {
+        return replay != null;
+    }
+
+    public void startReplay(@NotNull final Path path) throws IOException {
+        lock.writeLock().lock();
+        try {
+            closeRecorder();
+            closeReplay();
+            final var newReplay = new ForestReplay(path);
+            newReplay.next(replayTarget);
+            replay = newReplay;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long getReplayFirstGeneration() {
+        return currentReplay().getFirstGeneration();
+    }
+
+    public long getReplayLastGeneration() {
+        return currentReplay().getLastGeneration();
+    }
+
+    private ForestReplay currentReplay() {
+        final var current = replay;
+        if (current == null)
+            throw new IllegalStateException("not replaying");
+        return current;
+    }
+
+    public void seekReplay(final long generation) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (replay == null)
+                throw new IllegalStateException("not replaying");
+            replay.seek(replayTarget, generation);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void stopReplay() throws IOException {
+        lock.writeLock().lock();
+        try {
+            closeReplay();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void closeReplay() throws IOException {
+        if (replay != null) {
+            final var closing = replay;
+            replay = null;
+            closing.close();
+        }
+    }
+
+    private void replayNextGeneration() {
+        lock.writeLock().lock();
+        try {
+            final var current = replay;
+            if (current != null)
+                current.next(replayTarget);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     public void copyFrom(final ForestKeeper forestKeeper) {
         lock.writeLock().lock();
         try {
@@ -310,19 +561,47 @@ public final class ForestKeeper extends AbstractCellsManager {
     }
 
     private void copy(final ForestKeeper forestKeeper) {
-        forestKeeper.lock.readLock().lock();
+        // sharing the cells marks them as shared in the source too, so its writers must be excluded
+        forestKeeper.lock.writeLock().lock();
         try {
+            engine.copyFrom(forestKeeper.engine);
             this.columnsCount = forestKeeper.columnsCount;
             this.rowsCount = forestKeeper.rowsCount;
+        } finally {
+            forestKeeper.lock.writeLock().unlock();
+        }
+    }
 
-            final List<byte[]> dataSrc = forestKeeper.data;
-            ensureCellsAtLeast(dataSrc.size() * CELLS_IN_ONE_DATA_CHUNK);
-            for (int i = 0; i < dataSrc.size(); i++) {
-                final byte[] src = dataSrc.get(i);
-                System.arraycopy(src, 0, this.data.get(i), 0, src.length);
-            }
+    @NotNull
+    public ForestKeeper fork() {
+        lock.writeLock().lock();
+        try {
+            final var fork = new ForestKeeper(engine.fork());
+            fork.renderMode = renderMode;
+            return fork;
         } finally {
-            forestKeeper.lock.readLock().unlock();
+            lock.writeLock().unlock();
+        }
+    }
+
+    private final class ReplayTarget implements ForestReplay.Target {
+
+        @Override
+        public void reset(final int recordedColumnsCount, final int recordedRowsCount, final long generation) {
+            for (int column = 0; column < columnsCount; column++)
+                for (int row = column < recordedColumnsCount ? recordedRowsCount : 0; row < rowsCount; row++)
+                    engine.setState(column, row, ForestRule.EMPTY);
+        }
+
+        @Override
+        public void setState(final int column, final int row, final int state) {
+            if (column < columnsCount && row < rowsCount)
+                engine.setState(column, row, state);
+        }
+
+        @Override
+        public void setGeneration(final long generation) {
+            engine.setGeneration(generation);
         }
     }
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.LatencyHistogram;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Measures the costs of a {@link ForestKeeper}: generations, paints and clicks durations, plus the
+ * work done by the engine. While disabled, the keeper only pays a volatile read per operation.
+ */
+public final class ForestMetrics implements ForestMetricsMXBean {
+
+    private volatile boolean enabled;
+
+    private final LatencyHistogram generationTime = new LatencyHistogram();
+    private final LatencyHistogram paintTime = new LatencyHistogram();
+    private final LatencyHistogram clickTime = new LatencyHistogram();
+
+    private final AtomicLong cellsExamined = new AtomicLong();
+    private final AtomicLong neighborLookups = new AtomicLong();
+    private final AtomicLongArray transitions = new AtomicLongArray(ForestRule.STATES_COUNT);
+    private volatile int fireFrontSize = -1;
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void reset() {
+        generationTime.reset();
+        paintTime.reset();
+        clickTime.reset();
+        cellsExamined.set(0);
+        neighborLookups.set(0);
+        for (int state = 0; state < ForestRule.STATES_COUNT; state++)
+            transitions.set(state, 0);
+        fireFrontSize = -1;
+    }
+
+    void generationPublished(final long nanos, @NotNull final ForestEngine engine) {
+        generationTime.record(nanos);
+        cellsExamined.addAndGet(engine.getCellsExamined());
+        neighborLookups.addAndGet(engine.getNeighborLookups());
+        for (int state = 0; state < ForestRule.STATES_COUNT; state++) {
+            final long count = engine.getTransitionsCount(state);
+            if (count != 0)
+                transitions.addAndGet(state, count);
+        }
+        fireFrontSize = engine.getFireFrontSize();
+    }
+
+    void painted(final long nanos) {
+        paintTime.record(nanos);
+    }
+
+    void clicked(final long nanos) {
+        clickTime.record(nanos);
+    }
+
+    @Override
+    public LatencyHistogram.Summary getGenerationTime() {
+        return generationTime.summary();
+    }
+
+    @Override
+    public LatencyHistogram.Summary getPaintTime() {
+        return paintTime.summary();
+    }
+
+    @Override
+    public LatencyHistogram.Summary getClickTime() {
+        return clickTime.summary();
+    }
+
+    @Override
+    public long getCellsExamined() {
+        return cellsExamined.get();
+    }
+
+    @Override
+    public long getNeighborLookups() {
+        return neighborLookups.get();
+    }
+
+    @Override
+    public int getFireFrontSize() {
+        return fireFrontSize;
+    }
+
+    @Override
+    public Map<String, Long> getTransitions() {
+        final Map<String, Long> counts = new LinkedHashMap<>();
+        for (int state = 0; state < ForestRule.STATES_COUNT; state++)
+            if (ForestRule.isValid(state))
+                counts.put(Cell.stateOf(state).toString(), transitions.get(state));
+        return counts;
+    }
+
+    @NotNull
+    public List<String> describe() {
+        final var generations = generationTime.getCount();
+        return List.of(
+                "génération: " + getGenerationTime(),
+                "peinture: " + getPaintTime(),
+                "clic: " + getClickTime(),
+                String.format("cellules examinées: %d, voisins lus: %d (par génération)",
+                        generations == 0 ? 0 : getCellsExamined() / generations,
+                        generations == 0 ? 0 : getNeighborLookups() / generations),
+                "front de feu: " + (fireFrontSize < 0 ? "?" : Integer.toString(fireFrontSize)),
+                "transitions: " + getTransitions());
+    }
+
+    /**
+     * Registers these metrics to the platform MBean server under the given name, unique per forest.
+     */
+    @NotNull
+    public ObjectName register(@NotNull final String name) throws JMException {
+        final var objectName = new ObjectName(getClass().getPackageName() + ":type=ForestMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.util.Map;
+
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.LatencyHistogram;
+
+public interface ForestMetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    void reset();
+
+    LatencyHistogram.Summary getGenerationTime();
+
+    LatencyHistogram.Summary getPaintTime();
+
+    LatencyHistogram.Summary getClickTime();
+
+    long getCellsExamined();
+
+    long getNeighborLookups();
+
+    int getFireFrontSize();
+
+    Map<String, Long> getTransitions();
+}
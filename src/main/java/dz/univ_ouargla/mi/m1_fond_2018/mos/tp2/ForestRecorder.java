@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.zip.DeflaterOutputStream;
+
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.LongList;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Records every generation of a {@link ForestEngine} as a keyframe followed by deltas holding only
+ * the cells that changed, so that a recording grows with the fire front and not with the forest.
+ * <p>
+ * The file starts with magic {@code "FREC"} and a version (short), followed by independently
+ * deflated blocks, each one preceded by its first generation (long), last generation (long) and
+ * compressed length (int). A block starts with a keyframe (generation, columns count, rows count,
+ * cells packed two per byte) followed by one delta per generation: the count of changed cells then,
+ * for each cell in increasing {@code row * columns + column} order, a varint of the index distance
+ * to the previous one shifted left by 4 bits and ORed with the new state.
+ */
+public final class ForestRecorder implements ForestEngine.ChangesListener, Closeable {
+
+    static final int MAGIC = 0x46524543;
+    static final short VERSION = 1;
+    static final int FILE_HEADER_SIZE = 6;
+    static final int BLOCK_HEADER_SIZE = 20;
+    static final int STATE_BITS = 4;
+
+    private static final int KEYFRAME_INTERVAL = 128;
+
+    private final ForestEngine engine;
+    private final FileChannel channel;
+
+    private final LongList changedCells = new LongList();
+    private boolean resetPending;
+
+    private final ByteArrayOutputStream blockBytes = new ByteArrayOutputStream();
+    private DataOutputStream block;
+    private long blockFirstGeneration;
+    private long lastGeneration;
+    private int keyframeColumnsCount;
+    private long[] deltaIndexes = new long[0];
+
+    public ForestRecorder(@NotNull final ForestEngine engine, @NotNull final Path path) throws IOException {
+        this.engine = Objects.requireNonNull(engine);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try {
+            final ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            header.putInt(MAGIC).putShort(VERSION).flip();
+            writeFully(header);
+            startBlock();
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void cellChanged(final int column, final int row) {
+        if (!resetPending)
+            changedCells.add((long) row * keyframeColumnsCount + column);
+    }
+
+    @Override
+    public void generationPublished(final long generation) {
+        try {
+            if (resetPending || generation != lastGeneration + 1
+                    || generation - blockFirstGeneration >= KEYFRAME_INTERVAL) {
+                flushBlock();
+                startBlock();
+            } else {
+                writeDelta();
+                lastGeneration = generation;
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void forestReset() {
+        resetPending = true;
+        changedCells.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBlock();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void startBlock() throws IOException {
+        blockBytes.reset();
+        block = new DataOutputStream(new DeflaterOutputStream(blockBytes));
+
+        final int columnsCount = engine.getColumnsCount();
+        final int rowsCount = engine.getRowsCount();
+        blockFirstGeneration = engine.getGeneration();
+        lastGeneration = blockFirstGeneration;
+        keyframeColumnsCount = columnsCount;
+
+        block.writeLong(blockFirstGeneration);
+        block.writeInt(columnsCount);
+        block.writeInt(rowsCount);
+
+        int pending = -1;
+        for (int row = 0; row < rowsCount; row++)
+            for (int column = 0; column < columnsCount; column++) {
+                final int state = engine.getState(column, row);
+                if (pending < 0)
+                    pending = state;
+                else {
+                    block.writeByte(pending << STATE_BITS | state);
+                    pending = -1;
+                }
+            }
+        if (pending >= 0)
+            block.writeByte(pending << STATE_BITS);
+
+        changedCells.clear();
+        resetPending = false;
+    }
+
+    private void writeDelta() throws IOException {
+        final int changesCount = changedCells.size();
+        if (deltaIndexes.length < changesCount)
+            deltaIndexes = new long[Math.max(changesCount, deltaIndexes.length * 2)];
+        for (int i = 0; i < changesCount; i++)
+            deltaIndexes[i] = changedCells.get(i);
+        Arrays.sort(deltaIndexes, 0, changesCount);
+
+        int distinctCount = 0;
+        for (int i = 0; i < changesCount; i++)
+            if (i == 0 || deltaIndexes[i] != deltaIndexes[i - 1])
+                deltaIndexes[distinctCount++] = deltaIndexes[i];
+
+        writeVarLong(distinctCount);
+        long previousIndex = 0;
+        for (int i = 0; i < distinctCount; i++) {
+            final long index = deltaIndexes[i];
+            final int state = engine.getState((int) (index % keyframeColumnsCount), (int) (index / keyframeColumnsCount));
+            writeVarLong((index - previousIndex) << STATE_BITS | state);
+            previousIndex = index;
+        }
+
+        changedCells.clear();
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            block.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        block.writeByte((int) value);
+    }
+
+    private void flushBlock() throws IOException {
+        block.close();
+
+        final byte[] compressed = blockBytes.toByteArray();
+        final ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        header.putLong(blockFirstGeneration).putLong(lastGeneration).putInt(compressed.length).flip();
+        writeFully(header);
+        writeFully(ByteBuffer.wrap(compressed));
+    }
+
+    private void writeFully(final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.zip.InflaterInputStream;
+
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.LongList;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Replays a recording written by {@link ForestRecorder} without computing any generation:
+ * seeking inflates the block holding the target generation, applies its keyframe then the deltas
+ * up to that generation.
+ */
+public final class ForestReplay implements Closeable {
+
+    public interface Target {
+
+        void reset(final int columnsCount, final int rowsCount, final long generation);
+
+        void setState(final int column, final int row, final int state);
+
+        void setGeneration(final long generation);
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+
+    private final LongList blocksPositions = new LongList();
+    private final LongList blocksFirstGenerations = new LongList();
+    private final LongList blocksLastGenerations = new LongList();
+
+    private int blockIndex = -1;
+    private DataInputStream block;
+    private long generation;
+    private int columnsCount;
+
+    public ForestReplay(@NotNull final Path path) throws IOException {
+        this.path = Objects.requireNonNull(path);
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            readIndex();
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void readIndex() throws IOException {
+        final ByteBuffer header = readAt(0, ForestRecorder.FILE_HEADER_SIZE);
+        if (header.getInt() != ForestRecorder.MAGIC)
+            throw new IOException("not a forest recording: " + path);
+        final short version = header.getShort();
+        if (version > ForestRecorder.VERSION)
+            throw new IOException("unsupported forest recording version " + version + ": " + path);
+
+        long position = ForestRecorder.FILE_HEADER_SIZE;
+        while (position < channel.size()) {
+            final ByteBuffer blockHeader = readAt(position, ForestRecorder.BLOCK_HEADER_SIZE);
+            blocksPositions.add(position);
+            blocksFirstGenerations.add(blockHeader.getLong());
+            blocksLastGenerations.add(blockHeader.getLong());
+            position += ForestRecorder.BLOCK_HEADER_SIZE + blockHeader.getInt();
+        }
+
+        if (blocksPositions.isEmpty())
+            throw new IOException("empty forest recording: " + path);
+    }
+
+    public long getFirstGeneration() {
+        return blocksFirstGenerations.get(0);
+    }
+
+    public long getLastGeneration() {
+        return blocksLastGenerations.get(blocksLastGenerations.size() - 1);
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public void seek(@NotNull final Target target, final long generation) throws IOException {
+        int index = 0;
+        while (index + 1 < blocksPositions.size() && blocksFirstGenerations.get(index + 1) <= generation)
+            index++;
+
+        openBlock(target, index);
+        while (this.generation < generation && this.generation < blocksLastGenerations.get(index))
+            readDelta(target);
+    }
+
+    /**
+     * @return false if the end of the recording was already reached
+     */
+    public boolean next(@NotNull final Target target) throws IOException {
+        if (blockIndex < 0) {
+            openBlock(target, 0);
+            return true;
+        }
+
+        if (generation < blocksLastGenerations.get(blockIndex)) {
+            readDelta(target);
+            return true;
+        }
+
+        if (blockIndex + 1 < blocksPositions.size()) {
+            openBlock(target, blockIndex + 1);
+            return true;
+        }
+
+        return false;
+    }
+
+    private void openBlock(final Target target, final int index) throws IOException {
+        final long position = blocksPositions.get(index);
+        final int compressedLength = readAt(position, ForestRecorder.BLOCK_HEADER_SIZE)
+                .getInt(ForestRecorder.BLOCK_HEADER_SIZE - Integer.BYTES);
+        final ByteBuffer compressed = readAt(position + ForestRecorder.BLOCK_HEADER_SIZE, compressedLength);
+
+        block = new DataInputStream(new InflaterInputStream(
+                new ByteArrayInputStream(compressed.array(), 0, compressedLength)));
+        blockIndex = index;
+
+        generation = block.readLong();
+        columnsCount = block.readInt();
+        final int rowsCount = block.readInt();
+        target.reset(columnsCount, rowsCount, generation);
+
+        final long cellsCount = (long) columnsCount * rowsCount;
+        for (long cell = 0; cell < cellsCount; cell += 2) {
+            final int packed = block.readUnsignedByte();
+            applyState(target, cell, packed >>> ForestRecorder.STATE_BITS);
+            if (cell + 1 < cellsCount)
+                applyState(target, cell + 1, packed & ((1 << ForestRecorder.STATE_BITS) - 1));
+        }
+        target.setGeneration(generation);
+    }
+
+    private void readDelta(final Target target) throws IOException {
+        final long changesCount = readVarLong();
+        long index = 0;
+        for (long i = 0; i < changesCount; i++) {
+            final long entry = readVarLong();
+            index += entry >>> ForestRecorder.STATE_BITS;
+            applyState(target, index, (int) (entry & ((1 << ForestRecorder.STATE_BITS) - 1)));
+        }
+        target.setGeneration(++generation);
+    }
+
+    private void applyState(final Target target, final long index, final int state) throws IOException {
+        if (!ForestRule.isValid(state))
+            throw new IOException("invalid state " + state + " in forest recording: " + path);
+        target.setState((int) (index % columnsCount), (int) (index / columnsCount), state);
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = block.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private ByteBuffer readAt(final long position, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("truncated forest recording: " + path);
+        return buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @NotNull
+    public static Target into(@NotNull final ForestEngine engine) {
+        Objects.requireNonNull(engine);
+        return new Target() {
+            @Override
+            public void reset(final int columnsCount, final int rowsCount, final long generation) {
+                engine.resize(columnsCount, rowsCount);
+            }
+
+            @Override
+            public void setState(final int column, final int row, final int state) {
+                engine.setState(column, row, state);
+            }
+
+            @Override
+            public void setGeneration(final long generation) {
+                engine.setGeneration(generation);
+            }
+        };
+    }
+}
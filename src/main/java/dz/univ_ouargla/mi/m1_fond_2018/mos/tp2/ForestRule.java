@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.util.Random;
+
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.CellsEngine;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.RuleTable;
+import org.jetbrains.annotations.NotNull;
+
+public final class ForestRule {
+
+    public static final int EMPTY = 0;
+    public static final int BURNED = 1;
+    public static final int FIRE = 3;
+    public static final int BURNED_SLIGHTLY = 4;
+    public static final int TREE = 8;
+
+    public static final int STATES_COUNT = TREE + 1;
+
+    private static final int FLAMMABILITY_MASK = 0b11;
+
+    /**
+     * This rule compiled for {@link dz.univ_ouargla.mi.m1_fond_2018.mos.common.RuleTableEngine},
+     * the neighborhood being the flammability.
+     */
+    public static final RuleTable TABLE = RuleTable.compile("forest fire", STATES_COUNT,
+            ForestRule::isValid, ForestRule::flammabilityOf, ForestRule::next);
+
+    private ForestRule() {
+    }
+
+    public static boolean isValid(final int state) {
+        return state == EMPTY || state == BURNED || state == FIRE || state == BURNED_SLIGHTLY || state == TREE;
+    }
+
+    public static int flammabilityOf(final int neighbor) {
+        return neighbor & FLAMMABILITY_MASK;
+    }
+
+    public static boolean ignites(final int flammability) {
+        return flammability >= FIRE;
+    }
+
+    public static int next(final int state, final int flammability) {
+        switch (state) {
+            case EMPTY:
+                return EMPTY;
+            case BURNED:
+            case BURNED_SLIGHTLY:
+                return BURNED_SLIGHTLY;
+            case FIRE:
+                return BURNED;
+            case TREE:
+                return ignites(flammability) ? FIRE : TREE;
+            default:
+                throw new IllegalArgumentException("invalid state: " + state);
+        }
+    }
+
+    public static void plantTrees(@NotNull final CellsEngine engine, final long seed, final double treesDensity) {
+        final Random random = new Random(seed);
+        for (int row = 0; row < engine.getRowsCount(); row++)
+            for (int column = 0; column < engine.getColumnsCount(); column++)
+                engine.setState(column, row, random.nextDouble() < treesDensity ? TREE : EMPTY);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Binary snapshot of a forest, written and read through memory mapped regions of the file
+ * so that the cells go straight between the file and the engine.
+ * <p>
+ * Layout (big endian): magic {@code "FRST"}, version (short), bits per cell (short),
+ * columns count (int), rows count (int), generation (long), then the cells row by row,
+ * two per byte with the first one in the high nibble.
+ */
+public final class ForestSnapshot {
+
+    public static final int MAGIC = 0x46525354;
+    public static final short VERSION = 1;
+
+    private static final short BITS_PER_CELL = 4;
+    private static final int CELLS_PER_BYTE = Byte.SIZE / BITS_PER_CELL;
+    private static final int HEADER_SIZE = 24;
+    private static final long REGION_SIZE = 64L << 20;
+
+    private ForestSnapshot() {
+    }
+
+    public static void save(@NotNull final ForestEngine engine, @NotNull final Path path) throws IOException {
+        final int columnsCount = engine.getColumnsCount();
+        final int rowsCount = engine.getRowsCount();
+        final long cellsSize = packedSizeOf(columnsCount, rowsCount);
+
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC)
+                    .putShort(VERSION)
+                    .putShort(BITS_PER_CELL)
+                    .putInt(columnsCount)
+                    .putInt(rowsCount)
+                    .putLong(engine.getGeneration())
+                    .flip();
+            while (header.hasRemaining())
+                channel.write(header);
+
+            final var cells = new CellsCursor(columnsCount);
+            for (long regionStart = 0; regionStart < cellsSize; regionStart += REGION_SIZE) {
+                final long regionSize = Math.min(REGION_SIZE, cellsSize - regionStart);
+                final MappedByteBuffer region =
+                        channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + regionStart, regionSize);
+                while (region.hasRemaining()) {
+                    final int high = cells.hasNext(rowsCount) ? engine.getState(cells.column, cells.row) : 0;
+                    cells.next();
+                    final int low = cells.hasNext(rowsCount) ? engine.getState(cells.column, cells.row) : 0;
+                    cells.next();
+                    region.put((byte) (high << BITS_PER_CELL | low));
+                }
+                region.force();
+            }
+        }
+    }
+
+    public static void load(@NotNull final ForestEngine engine, @NotNull final Path path) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining())
+                if (channel.read(header) < 0)
+                    throw new IOException("truncated forest snapshot: " + path);
+            header.flip();
+
+            if (header.getInt() != MAGIC)
+                throw new IOException("not a forest snapshot: " + path);
+
+            final short version = header.getShort();
+            final short bitsPerCell = header.getShort();
+            if (version != VERSION || bitsPerCell != BITS_PER_CELL)
+                throw new IOException("unsupported forest snapshot version " + version + ": " + path);
+
+            final int columnsCount = header.getInt();
+            final int rowsCount = header.getInt();
+            final long generation = header.getLong();
+            if (columnsCount < 0 || rowsCount < 0)
+                throw new IOException("invalid forest snapshot size: " + columnsCount + " x " + rowsCount);
+
+            final long cellsSize = packedSizeOf(columnsCount, rowsCount);
+            if (channel.size() < HEADER_SIZE + cellsSize)
+                throw new IOException("truncated forest snapshot: " + path);
+
+            // the whole body is checked before the engine is touched, so a corrupt snapshot leaves it as it was
+            readCells(channel, columnsCount, rowsCount, (column, row, state) -> {
+                if (!ForestRule.isValid(state))
+                    throw new IOException("invalid state " + state + " for column: " + column + " and row: " + row);
+            });
+
+            engine.resize(columnsCount, rowsCount);
+            readCells(channel, columnsCount, rowsCount, engine::setState);
+            engine.setGeneration(generation);
+        }
+    }
+
+    private static void readCells(final FileChannel channel, final int columnsCount, final int rowsCount,
+                                  final CellReader reader) throws IOException {
+        final long cellsSize = packedSizeOf(columnsCount, rowsCount);
+        final var cells = new CellsCursor(columnsCount);
+        for (long regionStart = 0; regionStart < cellsSize; regionStart += REGION_SIZE) {
+            final long regionSize = Math.min(REGION_SIZE, cellsSize - regionStart);
+            final MappedByteBuffer region =
+                    channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + regionStart, regionSize);
+            while (region.hasRemaining()) {
+                final int packed = Byte.toUnsignedInt(region.get());
+                readCell(cells, rowsCount, packed >>> BITS_PER_CELL, reader);
+                readCell(cells, rowsCount, packed & ((1 << BITS_PER_CELL) - 1), reader);
+            }
+        }
+    }
+
+    private static void readCell(final CellsCursor cells, final int rowsCount, final int state,
+                                 final CellReader reader) throws IOException {
+        if (cells.hasNext(rowsCount)) {
+            reader.read(cells.column, cells.row, state);
+            cells.next();
+        }
+    }
+
+    private static long packedSizeOf(final int columnsCount, final int rowsCount) {
+        final long cellsCount = (long) columnsCount * rowsCount;
+        return (cellsCount + CELLS_PER_BYTE - 1) / CELLS_PER_BYTE;
+    }
+
+    @FunctionalInterface
+    private interface CellReader {
+
+        void read(int column, int row, int state) throws IOException;
+    }
+
+    private static final class CellsCursor {
+
+        private final int columnsCount;
+        private int column;
+        private int row;
+
+        private CellsCursor(final int columnsCount) {
+            this.columnsCount = columnsCount;
+        }
+
+        private boolean hasNext(final int rowsCount) {
+            return row < rowsCount && columnsCount > 0;
+        }
+
+        private void next() {
+            if (++column == columnsCount) {
+                column = 0;
+                row++;
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Offscreen image of the cells grid, remembering the state drawn for each cell so that only
+ * the cells which changed since the last paint need to be drawn again.
+ * <p>
+ * Cells can also be written straight into the pixels of the image, by copying precomputed sprites
+ * rendered once per state with {@link Cell#draw}, so they look exactly like the drawn ones.
+ */
+final class GridImageCache {
+
+    private static final byte NOT_RENDERED = -1;
+
+    private final Dimension size = new Dimension();
+    private int cellSize;
+    private int borderWidth;
+    private int columnsCount;
+    private int rowsCount;
+
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private int[] pixels;
+    private byte[] renderedStates = new byte[0];
+    private final int[][] sprites = new int[ForestRule.STATES_COUNT][];
+
+    /**
+     * @return true if the image was reset, meaning that the whole grid must be drawn again
+     */
+    boolean update(@NotNull final Dimension size, final int cellSize, final int borderWidth,
+                   final int columnsCount, final int rowsCount) {
+
+        if (image != null && this.size.equals(size) && this.cellSize == cellSize && this.borderWidth == borderWidth
+                && this.columnsCount == columnsCount && this.rowsCount == rowsCount)
+            return false;
+
+        if (image == null || image.getWidth() != size.width || image.getHeight() != size.height) {
+            if (graphics != null)
+                graphics.dispose();
+            image = new BufferedImage(Math.max(size.width, 1), Math.max(size.height, 1), BufferedImage.TYPE_INT_RGB);
+            graphics = null;
+            pixels = null;
+        }
+
+        if (this.cellSize != cellSize)
+            Arrays.fill(sprites, null);
+
+        final int cellsCount = columnsCount * rowsCount;
+        if (renderedStates.length < cellsCount)
+            renderedStates = new byte[cellsCount];
+        Arrays.fill(renderedStates, 0, cellsCount, NOT_RENDERED);
+
+        this.size.setSize(size);
+        this.cellSize = cellSize;
+        this.borderWidth = borderWidth;
+        this.columnsCount = columnsCount;
+        this.rowsCount = rowsCount;
+        return true;
+    }
+
+    @NotNull
+    BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * @return the graphics drawing on the image, kept along with it rather than created at each paint
+     */
+    @NotNull
+    Graphics2D getGraphics() {
+        if (graphics == null)
+            graphics = image.createGraphics();
+        return graphics;
+    }
+
+    /**
+     * @return true if the given state differs from the rendered one, and so must be drawn
+     */
+    boolean markRendered(final int column, final int row, final int state) {
+        final int index = row * columnsCount + column;
+        if (renderedStates[index] == state)
+            return false;
+
+        renderedStates[index] = (byte) state;
+        return true;
+    }
+
+    void drawSprite(final int state, final int x, final int y) {
+        final int[] sprite = spriteOf(state);
+        final int[] pixels = getPixels();
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+
+        if (cellSize == 1) {
+            if (x >= 0 && y >= 0 && x < width && y < height)
+                pixels[y * width + x] = sprite[0];
+            return;
+        }
+
+        final int fromX = Math.max(x, 0);
+        final int toX = Math.min(x + cellSize, width);
+        final int toY = Math.min(y + cellSize, height);
+        if (fromX >= toX)
+            return;
+
+        for (int spriteY = Math.max(y, 0); spriteY < toY; spriteY++)
+            System.arraycopy(sprite, (spriteY - y) * cellSize + fromX - x, pixels, spriteY * width + fromX, toX - fromX);
+    }
+
+    private int[] getPixels() {
+        if (pixels == null)
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        return pixels;
+    }
+
+    private int[] spriteOf(final int state) {
+        int[] sprite = sprites[state];
+        if (sprite == null) {
+            final var spriteImage = new BufferedImage(cellSize, cellSize, BufferedImage.TYPE_INT_RGB);
+            final var g = spriteImage.createGraphics();
+            try {
+                Cell.draw(g, Cell.stateOf(state), 0, 0, cellSize);
+            } finally {
+                g.dispose();
+            }
+
+            sprite = ((DataBufferInt) spriteImage.getRaster().getDataBuffer()).getData();
+            sprites[state] = sprite;
+        }
+        return sprite;
+    }
+}
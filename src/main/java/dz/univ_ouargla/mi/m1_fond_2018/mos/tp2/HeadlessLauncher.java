@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.BandGridStore;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.BlockedGridStore;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.CellsEngine;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.FlatGridStore;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.GridStore;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.PaddedGridStore;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.RuleTableEngine;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.ShellGridStore;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.TileGridStore;
+
+public final class HeadlessLauncher {
+
+    private static final int DEFAULT_GENERATIONS = 100;
+    private static final double DEFAULT_TREES_DENSITY = 0.6;
+    private static final String BIT_PLANES_MODE = "bit_planes";
+    private static final String RULE_TABLE_MODE = "rule_table";
+
+    public static void main(final String... arguments) {
+        // the three probabilities of the stochastic rule go together
+        if (arguments.length < 2 || arguments.length == 9 || arguments.length == 10) {
+            System.err.println("usage: HeadlessLauncher <columns> <rows> [generations] [trees density] [seed] [parallelism] [full_scan|frontier|bit_planes|rule_table] [bands|shell|flat|padded|blocked|tiles] [growth lightning ignition]");
+            System.exit(1);
+        }
+
+        final int columnsCount = Integer.parseInt(arguments[0]);
+        final int rowsCount = Integer.parseInt(arguments[1]);
+        final int generations = arguments.length > 2 ? Integer.parseInt(arguments[2]) : DEFAULT_GENERATIONS;
+        final double treesDensity = arguments.length > 3 ? Double.parseDouble(arguments[3]) : DEFAULT_TREES_DENSITY;
+        final long seed = arguments.length > 4 ? Long.parseLong(arguments[4]) : System.nanoTime();
+        final int parallelism = arguments.length > 5
+                ? Integer.parseInt(arguments[5])
+                : Runtime.getRuntime().availableProcessors();
+        final String mode = arguments.length > 6 ? arguments[6].toLowerCase(Locale.ROOT) : "frontier";
+        final String store = arguments.length > 7 ? arguments[7].toLowerCase(Locale.ROOT) : "bands";
+
+        final CellsEngine engine = newEngine(columnsCount, rowsCount, parallelism, mode, storeFactoryOf(store));
+        if (arguments.length > 10) {
+            if (!(engine instanceof ForestEngine))
+                throw new IllegalArgumentException("no stochastic rule in mode: " + mode);
+            ((ForestEngine) engine).setStochasticRule(new StochasticForestRule(Double.parseDouble(arguments[8]),
+                    Double.parseDouble(arguments[9]), Double.parseDouble(arguments[10]), seed));
+        }
+        ForestRule.plantTrees(engine, seed, treesDensity);
+        igniteFirstColumn(engine);
+
+        final long start = System.nanoTime();
+        engine.step(generations);
+        final long elapsed = System.nanoTime() - start;
+
+        report(System.out, engine, seed, elapsed);
+    }
+
+    private static CellsEngine newEngine(final int columnsCount, final int rowsCount,
+                                         final int parallelism, final String mode,
+                                         final Supplier<? extends GridStore> storeFactory) {
+        if (BIT_PLANES_MODE.equals(mode))
+            return new BitPlaneForestEngine(columnsCount, rowsCount);
+        else if (RULE_TABLE_MODE.equals(mode)) {
+            final var engine = new RuleTableEngine(ForestRule.TABLE, storeFactory);
+            engine.resize(columnsCount, rowsCount);
+            return engine;
+        }
+
+        final var engine = new ForestEngine(storeFactory);
+        engine.resize(columnsCount, rowsCount);
+        engine.setParallelism(parallelism);
+        engine.setStepMode(ForestEngine.StepMode.valueOf(mode.toUpperCase(Locale.ROOT)));
+        return engine;
+    }
+
+    private static Supplier<? extends GridStore> storeFactoryOf(final String store) {
+        switch (store) {
+            case "bands":
+                return BandGridStore::new;
+            case "shell":
+                return ShellGridStore::new;
+            case "flat":
+                return FlatGridStore::new;
+            case "padded":
+                return PaddedGridStore::new;
+            case "blocked":
+                return BlockedGridStore::new;
+            case "tiles":
+                return TileGridStore::new;
+            default:
+                throw new IllegalArgumentException("unknown store: " + store);
+        }
+    }
+
+    private static void igniteFirstColumn(final CellsEngine engine) {
+        for (int row = 0; row < engine.getRowsCount(); row++)
+            if (engine.getState(0, row) == ForestRule.TREE)
+                engine.setState(0, row, ForestRule.FIRE);
+    }
+
+    private static void report(final PrintStream out, final CellsEngine engine, final long seed, final long elapsed) {
+        out.printf("size: %d x %d, seed: %d%n", engine.getColumnsCount(), engine.getRowsCount(), seed);
+        out.printf("generations: %d in %.3f ms%n", engine.getGeneration(), elapsed / 1e6);
+        out.printf("trees: %d, fire: %d, burned: %d, burned slightly: %d, empty: %d%n",
+                engine.count(ForestRule.TREE),
+                engine.count(ForestRule.FIRE),
+                engine.count(ForestRule.BURNED),
+                engine.count(ForestRule.BURNED_SLIGHTLY),
+                engine.count(ForestRule.EMPTY));
+    }
+}
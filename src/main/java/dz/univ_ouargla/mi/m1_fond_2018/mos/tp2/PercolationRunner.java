@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Monte-Carlo percolation experiments: for each trees density, plants independent random forests,
+ * sets one edge on fire, lets it burn out and reports how much of the forest burned, as CSV lines.
+ * <p>
+ * Trials are spread over worker threads, each one reusing a single {@link ForestEngine} so grids
+ * are allocated once per worker. Every trial seed is derived from the base seed, the density index
+ * and the trial index only, so results do not depend on the number of workers nor on their timing;
+ * lines are streamed as trials complete, hence not in order. A failing trial stops the workers,
+ * and its failure is thrown by {@link #run(double[], int, int, PrintStream)}.
+ */
+public final class PercolationRunner {
+
+    public static final String CSV_HEADER =
+            "density,trial,seed,trees,burned,burned_fraction,generations,crossed,elapsed_ms";
+
+    private static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+
+    public enum Edge {
+        WEST, NORTH, EAST, SOUTH;
+
+        @NotNull
+        public Edge opposite() {
+            return values()[(ordinal() + 2) % 4];
+        }
+    }
+
+    private final int columnsCount;
+    private final int rowsCount;
+    private final Edge ignitedEdge;
+    private final long baseSeed;
+
+    public PercolationRunner(final int columnsCount, final int rowsCount,
+                             @NotNull final Edge ignitedEdge, final long baseSeed) {
+        if (columnsCount < 1 || rowsCount < 1)
+            throw new IllegalArgumentException("invalid size: " + columnsCount + " x " + rowsCount);
+
+        this.columnsCount = columnsCount;
+        this.rowsCount = rowsCount;
+        this.ignitedEdge = Objects.requireNonNull(ignitedEdge);
+        this.baseSeed = baseSeed;
+    }
+
+    public void run(@NotNull final double[] densities, final int trials, final int workersCount,
+                    @NotNull final PrintStream out) throws InterruptedException {
+        if (trials < 0)
+            throw new IllegalArgumentException("invalid trials count: " + trials);
+        if (workersCount < 1)
+            throw new IllegalArgumentException("invalid workers count: " + workersCount);
+        for (final double density : densities)
+            if (!(density >= 0 && density <= 1))
+                throw new IllegalArgumentException("invalid density: " + density);
+
+        out.println(CSV_HEADER);
+
+        final long tasksCount = (long) densities.length * trials;
+        final var nextTask = new AtomicLong();
+        final var failure = new AtomicReference<Throwable>();
+        final var workers = new Thread[(int) Math.min(workersCount, Math.max(tasksCount, 1))];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(() -> {
+                try {
+                    final var engine = newEngine();
+                    final var line = new StringBuilder();
+                    long task = nextTask.getAndIncrement();
+                    while (task < tasksCount && failure.get() == null) {
+                        final int densityIndex = (int) (task / trials);
+                        final int trial = (int) (task % trials);
+                        runTrial(engine, densities[densityIndex], trial, seedOf(densityIndex, trial), line);
+                        synchronized (out) {
+                            out.append(line).println();
+                        }
+                        task = nextTask.getAndIncrement();
+                    }
+                } catch (final RuntimeException | Error e) {
+                    if (!failure.compareAndSet(null, e))
+                        failure.get().addSuppressed(e);
+                }
+            }, "percolation-" + i);
+            workers[i].start();
+        }
+
+        for (final Thread worker : workers)
+            worker.join();
+        out.flush();
+
+        final Throwable workerFailure = failure.get();
+        if (workerFailure instanceof Error)
+            throw (Error) workerFailure;
+        else if (workerFailure != null)
+            throw (RuntimeException) workerFailure;
+    }
+
+    private ForestEngine newEngine() {
+        final var engine = new ForestEngine(columnsCount, rowsCount);
+        engine.setStepMode(ForestEngine.StepMode.FRONTIER);
+        return engine;
+    }
+
+    private long seedOf(final int densityIndex, final int trial) {
+        return mix(mix(baseSeed + densityIndex * SEED_INCREMENT) + trial * SEED_INCREMENT);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private void runTrial(final ForestEngine engine, final double density, final int trial, final long seed,
+                          final StringBuilder line) {
+        final long start = System.nanoTime();
+
+        engine.seed(seed, density);
+        engine.setGeneration(0);
+        final long trees = engine.count(ForestRule.TREE);
+        igniteEdge(engine, ignitedEdge);
+
+        while (!engine.isBurnedOut())
+            engine.step();
+
+        final long burned = trees - engine.count(ForestRule.TREE);
+        final boolean crossed = reachesEdge(engine, ignitedEdge.opposite());
+        final long elapsed = System.nanoTime() - start;
+
+        line.setLength(0);
+        line.append(density).append(',')
+                .append(trial).append(',')
+                .append(seed).append(',')
+                .append(trees).append(',')
+                .append(burned).append(',')
+                .append(trees == 0 ? 0.0 : (double) burned / trees).append(',')
+                .append(engine.getGeneration()).append(',')
+                .append(crossed).append(',')
+                .append(elapsed / 1_000_000.0);
+    }
+
+    private static void igniteEdge(final ForestEngine engine, final Edge edge) {
+        final int length = edgeLength(engine, edge);
+        for (int i = 0; i < length; i++) {
+            final int column = edgeColumn(engine, edge, i);
+            final int row = edgeRow(engine, edge, i);
+            if (engine.getState(column, row) == ForestRule.TREE)
+                engine.setState(column, row, ForestRule.FIRE);
+        }
+    }
+
+    private static boolean reachesEdge(final ForestEngine engine, final Edge edge) {
+        final int length = edgeLength(engine, edge);
+        for (int i = 0; i < length; i++)
+            if (engine.getState(edgeColumn(engine, edge, i), edgeRow(engine, edge, i)) == ForestRule.BURNED_SLIGHTLY)
+                return true;
+        return false;
+    }
+
+    private static int edgeLength(final ForestEngine engine, final Edge edge) {
+        return edge == Edge.WEST || edge == Edge.EAST ? engine.getRowsCount() : engine.getColumnsCount();
+    }
+
+    private static int edgeColumn(final ForestEngine engine, final Edge edge, final int i) {
+        switch (edge) {
+            case WEST:
+                return 0;
+            case EAST:
+                return engine.getColumnsCount() - 1;
+            default:
+                return i;
+        }
+    }
+
+    private static int edgeRow(final ForestEngine engine, final Edge edge, final int i) {
+        switch (edge) {
+            case NORTH:
+                return 0;
+            case SOUTH:
+                return engine.getRowsCount() - 1;
+            default:
+                return i;
+        }
+    }
+
+    public static void main(final String... arguments) throws InterruptedException {
+        if (arguments.length < 4) {
+            System.err.println("usage: PercolationRunner <columns> <rows> <densities: d1,d2,... or from:to:step> <trials> [seed] [workers] [west|north|east|south]");
+            System.exit(1);
+        }
+
+        final int columnsCount = Integer.parseInt(arguments[0]);
+        final int rowsCount = Integer.parseInt(arguments[1]);
+        final double[] densities = parseDensities(arguments[2]);
+        final int trials = Integer.parseInt(arguments[3]);
+        final long seed = arguments.length > 4 ? Long.parseLong(arguments[4]) : System.nanoTime();
+        final int workersCount = arguments.length > 5
+                ? Integer.parseInt(arguments[5])
+                : Runtime.getRuntime().availableProcessors();
+        final Edge edge = arguments.length > 6 ? Edge.valueOf(arguments[6].toUpperCase(Locale.ROOT)) : Edge.WEST;
+
+        new PercolationRunner(columnsCount, rowsCount, edge, seed).run(densities, trials, workersCount, System.out);
+    }
+
+    private static double[] parseDensities(final String text) {
+        final String[] range = text.split(":");
+        if (range.length == 3) {
+            // in decimal, so that 0.1:0.5:0.1 gives 0.3 and not 0.30000000000000004
+            final var from = new BigDecimal(range[0].trim());
+            final var to = new BigDecimal(range[1].trim());
+            final var step = new BigDecimal(range[2].trim());
+            if (step.signum() <= 0)
+                throw new IllegalArgumentException("invalid densities step: " + step);
+
+            final int count = to.subtract(from).divide(step, 0, RoundingMode.FLOOR).intValueExact() + 1;
+            final double[] densities = new double[Math.max(count, 0)];
+            for (int i = 0; i < densities.length; i++)
+                densities[i] = from.add(step.multiply(BigDecimal.valueOf(i))).doubleValue();
+            return densities;
+        }
+
+        final String[] values = text.split(",");
+        final double[] densities = new double[values.length];
+        for (int i = 0; i < values.length; i++)
+            densities[i] = Double.parseDouble(values[i].trim());
+        return densities;
+    }
+}
@@ -12,14 +12,30 @@
 
 package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
 
+import javax.management.JMException;
 import javax.swing.SwingUtilities;
 
 import dz.univ_ouargla.mi.m1_fond_2018.mos.common.DashboardFrame;
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.RetentionPolicy;
 
 public final class SimulationLauncher {
 
-    public static void main(final String... arguments) {
-        final var forest = new Forest(new ForestKeeper());
+    private static final long MAX_HIDDEN_CELLS = 1 << 22;
+
+    public static void main(final String... arguments) throws JMException {
+        final var engine = new ForestEngine();
+        engine.setParallelism(Runtime.getRuntime().availableProcessors());
+        engine.setStepMode(ForestEngine.StepMode.FRONTIER);
+        engine.setRetentionPolicy(RetentionPolicy.keepAtMost(MAX_HIDDEN_CELLS));
+
+        final var forestKeeper = new ForestKeeper(engine);
+        forestKeeper.setRenderMode(ForestKeeper.RenderMode.PIXELS);
+
+        final var metrics = new ForestMetrics();
+        metrics.register("simulation");
+        forestKeeper.setMetrics(metrics);
+
+        final var forest = new Forest(forestKeeper);
         final var dashboard = new Dashboard(forest);
         final var simulation = new DashboardFrame("Forest Simulator", dashboard, forest);
         SwingUtilities.invokeLater(simulation::launch);
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.util.Arrays;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Weighted neighborhood of a tree: a tree ignites when the flammability of its neighbors, each
+ * multiplied by the weight of its offset, adds up to {@link ForestRule#FIRE}, as the eight equally
+ * weighted neighbors of {@link ForestRule} do.
+ * <p>
+ * Kernels are compiled once into flat arrays of offsets and fixed point weights, zero weights
+ * dropped, so evolving with one costs one multiplication more per neighbor than {@link ForestRule}.
+ */
+public final class SpreadKernel {
+
+    public static final int MAX_RADIUS = 2;
+
+    /**
+     * The fixed point weight of one.
+     */
+    public static final int UNIT = 1 << 8;
+
+    /**
+     * The heaviest fixed point weight.
+     */
+    public static final int MAX_WEIGHT = 1 << 16;
+
+    /**
+     * The weighted flammability a tree ignites from.
+     */
+    static final long IGNITION_SPREAD = (long) ForestRule.FIRE * UNIT;
+
+    /**
+     * The eight neighbors of {@link ForestRule}, all weighing one.
+     */
+    public static final SpreadKernel MOORE = wind(0, 0, 1);
+
+    private final int radius;
+    private final int[] columnOffsets;
+    private final int[] rowOffsets;
+    private final int[] weights;
+
+    private SpreadKernel(final int[] columnOffsets, final int[] rowOffsets, final int[] weights) {
+        int radius = 0;
+        for (int i = 0; i < weights.length; i++)
+            radius = Math.max(radius, Math.max(Math.abs(columnOffsets[i]), Math.abs(rowOffsets[i])));
+
+        this.radius = radius;
+        this.columnOffsets = columnOffsets;
+        this.rowOffsets = rowOffsets;
+        this.weights = weights;
+    }
+
+    /**
+     * Compiles the given neighbors, each one being the offset from the tree to a neighbor
+     * and the weight of its flammability, at most {@value #MAX_WEIGHT} / {@value #UNIT}.
+     */
+    @NotNull
+    public static SpreadKernel of(@NotNull final int[] columnOffsets, @NotNull final int[] rowOffsets,
+                                  @NotNull final double[] weights) {
+        if (columnOffsets.length != weights.length || rowOffsets.length != weights.length)
+            throw new IllegalArgumentException("offsets and weights counts differ");
+
+        final int[] compiledColumns = new int[weights.length];
+        final int[] compiledRows = new int[weights.length];
+        final int[] compiledWeights = new int[weights.length];
+        int size = 0;
+        for (int i = 0; i < weights.length; i++) {
+            final int column = columnOffsets[i];
+            final int row = rowOffsets[i];
+            if (Math.abs(column) > MAX_RADIUS || Math.abs(row) > MAX_RADIUS || column == 0 && row == 0)
+                throw new IllegalArgumentException("invalid offset: " + column + ", " + row);
+            if (!(weights[i] >= 0 && weights[i] * UNIT <= MAX_WEIGHT))
+                throw new IllegalArgumentException("invalid weight: " + weights[i]);
+
+            final int weight = (int) Math.round(weights[i] * UNIT);
+            if (weight != 0) {
+                compiledColumns[size] = column;
+                compiledRows[size] = row;
+                compiledWeights[size] = weight;
+                size++;
+            }
+        }
+        return new SpreadKernel(Arrays.copyOf(compiledColumns, size), Arrays.copyOf(compiledRows, size),
+                Arrays.copyOf(compiledWeights, size));
+    }
+
+    /**
+     * Compiles the neighbors up to the given radius, the fire spreading {@code e^strength} times
+     * more easily along the wind direction, given in radians from the columns axis towards the rows
+     * axis, and {@code e^-strength} times against it. Neighbors two cells away weigh a fourth.
+     */
+    @NotNull
+    public static SpreadKernel wind(final double direction, final double strength, final int radius) {
+        if (radius < 1 || radius > MAX_RADIUS)
+            throw new IllegalArgumentException("invalid radius: " + radius);
+
+        final int length = 2 * radius + 1;
+        final int[] columnOffsets = new int[length * length - 1];
+        final int[] rowOffsets = new int[columnOffsets.length];
+        final double[] weights = new double[columnOffsets.length];
+        int i = 0;
+        for (int row = -radius; row <= radius; row++)
+            for (int column = -radius; column <= radius; column++)
+                if (column != 0 || row != 0) {
+                    // the fire goes from the neighbor to the tree, against the offset
+                    final double alignment = -(column * Math.cos(direction) + row * Math.sin(direction))
+                            / Math.hypot(column, row);
+                    final int distance = Math.max(Math.abs(column), Math.abs(row));
+                    columnOffsets[i] = column;
+                    rowOffsets[i] = row;
+                    weights[i] = Math.exp(strength * alignment) / (distance * distance);
+                    i++;
+                }
+        return of(columnOffsets, rowOffsets, weights);
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    public int size() {
+        return weights.length;
+    }
+
+    public int getColumnOffset(final int index) {
+        return columnOffsets[index];
+    }
+
+    public int getRowOffset(final int index) {
+        return rowOffsets[index];
+    }
+
+    /**
+     * Returns the fixed point weight of the given neighbor, {@link #UNIT} standing for one.
+     */
+    public int getWeight(final int index) {
+        return weights[index];
+    }
+
+    int[] getColumnOffsets() {
+        return columnOffsets;
+    }
+
+    int[] getRowOffsets() {
+        return rowOffsets;
+    }
+
+    int[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * Returns the offsets of the neighbors in a flat array of the given stride.
+     */
+    int[] indexOffsetsOf(final int stride) {
+        final int[] indexOffsets = new int[weights.length];
+        for (int i = 0; i < indexOffsets.length; i++)
+            indexOffsets[i] = rowOffsets[i] * stride + columnOffsets[i];
+        return indexOffsets;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.util.Locale;
+
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.CounterRandom;
+
+/**
+ * The Drossel-Schwabl variant of {@link ForestRule}: empty and slightly burned cells grow a tree
+ * with the growth probability, a tree is struck by lightning with the lightning probability, and
+ * each burning neighbor (on {@link ForestRule#FIRE fire} or {@link ForestRule#BURNED burned})
+ * sets it on fire with the ignition probability. Burning cells then go out as in {@link ForestRule}.
+ * <p>
+ * Each cell that may change draws one {@link CounterRandom} value from the seed, the generation
+ * and its position, against thresholds computed once, so a generation is the same whatever the
+ * number of threads evolving it and the order of the cells.
+ */
+public final class StochasticForestRule {
+
+    private static final int NEIGHBORS_COUNT = 8;
+    private static final int BURNING_MASK = 0b1;
+
+    private final double growth;
+    private final double lightning;
+    private final double ignition;
+    private final long seed;
+
+    private final long growthThreshold;
+    private final long[] fireThresholds = new long[NEIGHBORS_COUNT + 1];
+
+    public StochasticForestRule(final double growth, final double lightning, final double ignition, final long seed) {
+        this.growth = checkProbability("growth", growth);
+        this.lightning = checkProbability("lightning", lightning);
+        this.ignition = checkProbability("ignition", ignition);
+        this.seed = seed;
+
+        // a tree with k burning neighbors is spared by the lightning and by each of them
+        this.growthThreshold = CounterRandom.thresholdOf(growth);
+        for (int burning = 0; burning <= NEIGHBORS_COUNT; burning++)
+            fireThresholds[burning] = CounterRandom.thresholdOf(1 - (1 - lightning) * Math.pow(1 - ignition, burning));
+    }
+
+    private static double checkProbability(final String name, final double probability) {
+        if (!(probability >= 0 && probability <= 1))
+            throw new IllegalArgumentException("invalid " + name + " probability: " + probability);
+        return probability;
+    }
+
+    public double getGrowth() {
+        return growth;
+    }
+
+    public double getLightning() {
+        return lightning;
+    }
+
+    public double getIgnition() {
+        return ignition;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns one if the given neighbor burns, zero otherwise.
+     */
+    public static int burningOf(final int neighbor) {
+        return neighbor & BURNING_MASK;
+    }
+
+    /**
+     * Returns the random stream the cells of the given generation draw from.
+     */
+    public long streamOf(final long generation) {
+        return CounterRandom.streamOf(seed, generation);
+    }
+
+    /**
+     * Returns the next state of the given cell, drawing from the {@linkplain #streamOf(long) stream}
+     * of the current generation only when it may change.
+     */
+    public int next(final int state, final int burningNeighbors, final long stream, final int column, final int row) {
+        switch (state) {
+            case ForestRule.EMPTY:
+            case ForestRule.BURNED_SLIGHTLY:
+                return draws(growthThreshold, stream, column, row) ? ForestRule.TREE : state;
+            case ForestRule.TREE:
+                return draws(fireThresholds[burningNeighbors], stream, column, row) ? ForestRule.FIRE : state;
+            default:
+                return ForestRule.next(state, 0);
+        }
+    }
+
+    private static boolean draws(final long threshold, final long stream, final int column, final int row) {
+        return threshold != 0 && CounterRandom.below(CounterRandom.at(stream, column, row), threshold);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "p=%g, f=%g, q=%g, seed=%d", growth, lightning, ignition, seed);
+    }
+}
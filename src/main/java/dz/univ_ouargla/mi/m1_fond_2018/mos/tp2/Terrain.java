@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.util.Arrays;
+
+/**
+ * Fuel and elevation of every cell, in flat byte arrays with a margin of
+ * {@link SpreadKernel#MAX_RADIUS} cells, so the neighbors of any cell of the terrain are read
+ * at fixed offsets. Cells outside the terrain are flat, at elevation zero, with the normal fuel.
+ * <p>
+ * Fuel scales how easily a tree ignites, {@link #NORMAL_FUEL} being {@link ForestRule} and zero
+ * never igniting. Elevations are levels from 0 to 255: each level a burning neighbor stands below
+ * a tree multiplies its weight by {@code e^slopeEffect}, and divides it each level above.
+ * Both effects are tabulated once, per fuel and per elevation difference.
+ */
+public final class Terrain {
+
+    public static final int NORMAL_FUEL = 100;
+    public static final int MAX_FUEL = 255;
+    public static final int MAX_ELEVATION = 255;
+
+    private static final int MARGIN = SpreadKernel.MAX_RADIUS;
+    private static final int MAX_SLOPE_FACTOR = SpreadKernel.UNIT << 6;
+
+    private final int columnsCount;
+    private final int rowsCount;
+    private final int stride;
+    private final double slopeEffect;
+
+    private final byte[] fuels;
+    private final byte[] elevations;
+
+    private final int[] slopeFactors = new int[2 * MAX_ELEVATION + 1];
+    private final long[] ignitionSpreads = new long[MAX_FUEL + 1];
+
+    public Terrain(final int columnsCount, final int rowsCount, final double slopeEffect) {
+        if (columnsCount < 0 || rowsCount < 0)
+            throw new IllegalArgumentException("invalid size: " + columnsCount + " x " + rowsCount);
+        if (!Double.isFinite(slopeEffect))
+            throw new IllegalArgumentException("invalid slope effect: " + slopeEffect);
+
+        this.columnsCount = columnsCount;
+        this.rowsCount = rowsCount;
+        this.stride = columnsCount + 2 * MARGIN;
+        this.slopeEffect = slopeEffect;
+        this.fuels = new byte[Math.multiplyExact(stride, rowsCount + 2 * MARGIN)];
+        this.elevations = new byte[fuels.length];
+        Arrays.fill(fuels, (byte) NORMAL_FUEL);
+
+        for (int rise = -MAX_ELEVATION; rise <= MAX_ELEVATION; rise++)
+            slopeFactors[rise + MAX_ELEVATION] =
+                    (int) Math.min(MAX_SLOPE_FACTOR, Math.round(SpreadKernel.UNIT * Math.exp(slopeEffect * rise)));
+
+        // the spread of a tree is weighed once by the kernel and once by the slope
+        final long normalSpread = SpreadKernel.IGNITION_SPREAD * SpreadKernel.UNIT * NORMAL_FUEL;
+        ignitionSpreads[0] = Long.MAX_VALUE;
+        for (int fuel = 1; fuel <= MAX_FUEL; fuel++)
+            ignitionSpreads[fuel] = (normalSpread + fuel - 1) / fuel;
+    }
+
+    public int getColumnsCount() {
+        return columnsCount;
+    }
+
+    public int getRowsCount() {
+        return rowsCount;
+    }
+
+    public double getSlopeEffect() {
+        return slopeEffect;
+    }
+
+    public boolean contains(final int column, final int row) {
+        return column >= 0 && row >= 0 && column < columnsCount && row < rowsCount;
+    }
+
+    public int getFuel(final int column, final int row) {
+        return contains(column, row) ? Byte.toUnsignedInt(fuels[indexOf(column, row)]) : NORMAL_FUEL;
+    }
+
+    public void setFuel(final int column, final int row, final int fuel) {
+        if (fuel < 0 || fuel > MAX_FUEL)
+            throw new IllegalArgumentException("invalid fuel: " + fuel);
+        fuels[checkedIndexOf(column, row)] = (byte) fuel;
+    }
+
+    public int getElevation(final int column, final int row) {
+        return contains(column, row) ? Byte.toUnsignedInt(elevations[indexOf(column, row)]) : 0;
+    }
+
+    public void setElevation(final int column, final int row, final int elevation) {
+        if (elevation < 0 || elevation > MAX_ELEVATION)
+            throw new IllegalArgumentException("invalid elevation: " + elevation);
+        elevations[checkedIndexOf(column, row)] = (byte) elevation;
+    }
+
+    private int checkedIndexOf(final int column, final int row) {
+        if (!contains(column, row))
+            throw new IndexOutOfBoundsException("for column: " + column + " and row: " + row);
+        return indexOf(column, row);
+    }
+
+    int indexOf(final int column, final int row) {
+        return (row + MARGIN) * stride + column + MARGIN;
+    }
+
+    int getStride() {
+        return stride;
+    }
+
+    byte[] getFuels() {
+        return fuels;
+    }
+
+    byte[] getElevations() {
+        return elevations;
+    }
+
+    /**
+     * Returns the fixed point factor of the spread from a burning neighbor to a tree
+     * standing the given number of levels above it.
+     */
+    int slopeFactorOf(final int rise) {
+        return slopeFactors[rise + MAX_ELEVATION];
+    }
+
+    /**
+     * Returns the spread, weighed by the kernel and the slope, a tree of the given fuel ignites from.
+     */
+    long ignitionSpreadOf(final int fuel) {
+        return ignitionSpreads[fuel];
+    }
+}
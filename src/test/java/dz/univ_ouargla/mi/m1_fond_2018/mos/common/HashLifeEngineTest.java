@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HashLifeEngineTest {
+
+    private static final int SOUP_LENGTH = 24;
+    private static final int GENERATIONS = 64;
+    // cells move at most one cell per generation, so the bounded grid never feels its edges
+    private static final int MARGIN = GENERATIONS + 1;
+    // far less than the thousands of nodes these soups build, so that nodes are forgotten all along
+    private static final int TINY_CACHE = 200;
+
+    @Test
+    public void lifeStaysExactWithTinyCache() {
+        assertEvolvesAsRuleTableEngine(RuleTable.LIFE);
+    }
+
+    @Test
+    public void briansBrainStaysExactWithTinyCache() {
+        assertEvolvesAsRuleTableEngine(RuleTable.BRIANS_BRAIN);
+    }
+
+    private static void assertEvolvesAsRuleTableEngine(final RuleTable rule) {
+        for (long seed = 0; seed < 3; seed++) {
+            final int length = SOUP_LENGTH + 2 * MARGIN;
+            final RuleTableEngine expected = new RuleTableEngine(rule, length, length);
+            final HashLifeEngine stepped = new HashLifeEngine(rule, TINY_CACHE);
+            final HashLifeEngine jumped = new HashLifeEngine(rule, TINY_CACHE);
+
+            final Random random = new Random(seed);
+            for (int row = 0; row < SOUP_LENGTH; row++)
+                for (int column = 0; column < SOUP_LENGTH; column++) {
+                    final int state = random.nextInt(rule.getStatesCount());
+                    expected.setState(column + MARGIN, row + MARGIN, state);
+                    stepped.setState(column, row, state);
+                    jumped.setState(column, row, state);
+                }
+
+            for (int generation = 0; generation < GENERATIONS; generation++) {
+                expected.step();
+                stepped.step();
+                assertSameCells(expected, stepped);
+            }
+            assertTrue(stepped.getNodesCount() <= TINY_CACHE);
+
+            jumped.jump(GENERATIONS);
+            assertEquals(GENERATIONS, jumped.getGeneration());
+            assertSameCells(expected, jumped);
+        }
+    }
+
+    private static void assertSameCells(final RuleTableEngine expected, final HashLifeEngine actual) {
+        for (int row = -MARGIN; row < SOUP_LENGTH + MARGIN; row++)
+            for (int column = -MARGIN; column < SOUP_LENGTH + MARGIN; column++)
+                assertEquals(expected.getState(column + MARGIN, row + MARGIN), actual.getState(column, row));
+    }
+}
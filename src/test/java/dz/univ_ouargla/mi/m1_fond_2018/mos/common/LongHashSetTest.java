@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.common;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LongHashSetTest {
+
+    @Test
+    public void addsAndRemovesAsHashSet() {
+        final Random random = new Random(7);
+        final LongHashSet set = new LongHashSet();
+        final Set<Long> expected = new HashSet<>();
+
+        // few distinct keys, so that clusters form and removals move keys back into them
+        for (int i = 0; i < 200_000; i++) {
+            final long key = random.nextInt(4096);
+            if (random.nextInt(3) == 0)
+                assertEquals(expected.remove(key), set.remove(key));
+            else
+                assertEquals(expected.add(key), set.add(key));
+            assertEquals(expected.size(), set.size());
+        }
+
+        for (long key = 0; key < 4096; key++)
+            assertEquals(expected.contains(key), set.contains(key));
+    }
+
+    @Test
+    public void removingEveryKeyEmptiesSet() {
+        final LongHashSet set = new LongHashSet();
+        for (long key = 0; key < 10_000; key++)
+            set.add(key * 31);
+        for (long key = 0; key < 10_000; key++)
+            assertEquals(true, set.remove(key * 31));
+
+        assertEquals(0, set.size());
+        for (long key = 0; key < 10_000; key++)
+            assertEquals(false, set.contains(key * 31));
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class BitPlaneForestEngineTest {
+
+    private static final int[] STATES = {
+            ForestRule.EMPTY, ForestRule.TREE, ForestRule.TREE, ForestRule.TREE,
+            ForestRule.FIRE, ForestRule.BURNED, ForestRule.BURNED_SLIGHTLY
+    };
+
+    @Test
+    public void evolvesAsForestEngine() {
+        // widths around the word size, so that neighbors cross words and the last word is partial
+        final int[][] sizes = {{1, 1}, {1, 40}, {63, 17}, {64, 64}, {65, 9}, {130, 70}, {200, 150}};
+        for (final int[] size : sizes)
+            for (long seed = 0; seed < 3; seed++)
+                assertEvolvesAsForestEngine(size[0], size[1], seed);
+    }
+
+    private static void assertEvolvesAsForestEngine(final int columnsCount, final int rowsCount, final long seed) {
+        final ForestEngine expected = new ForestEngine(columnsCount, rowsCount);
+        final BitPlaneForestEngine actual = new BitPlaneForestEngine(columnsCount, rowsCount);
+        final Random random = new Random(seed);
+        for (int row = 0; row < rowsCount; row++)
+            for (int column = 0; column < columnsCount; column++) {
+                final int state = STATES[random.nextInt(STATES.length)];
+                expected.setState(column, row, state);
+                actual.setState(column, row, state);
+            }
+
+        for (int generation = 0; generation < 50; generation++) {
+            expected.step();
+            actual.step();
+
+            for (int row = 0; row < rowsCount; row++)
+                for (int column = 0; column < columnsCount; column++)
+                    assertEquals(expected.getState(column, row), actual.getState(column, row));
+            for (final int state : new int[]{ForestRule.EMPTY, ForestRule.TREE, ForestRule.FIRE,
+                    ForestRule.BURNED, ForestRule.BURNED_SLIGHTLY})
+                assertEquals(expected.count(state), actual.count(state));
+        }
+    }
+}
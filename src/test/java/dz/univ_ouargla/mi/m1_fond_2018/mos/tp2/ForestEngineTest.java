@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.TileGridStore;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ForestEngineTest {
+
+    @Test
+    public void stochasticTilesEvolveInParallelAsOnOneThread() {
+        final ForestEngine sequential = stochasticTilesForest(1);
+        final ForestEngine parallel = stochasticTilesForest(4);
+
+        for (int generation = 0; generation < 10; generation++) {
+            sequential.step();
+            parallel.step();
+        }
+
+        for (int row = 0; row < sequential.getRowsCount(); row++)
+            for (int column = 0; column < sequential.getColumnsCount(); column++)
+                assertEquals(sequential.getState(column, row), parallel.getState(column, row));
+    }
+
+    private static ForestEngine stochasticTilesForest(final int parallelism) {
+        final ForestEngine engine = new ForestEngine(TileGridStore::new);
+        engine.resize(1000, 1000);
+        // a few trees in one corner, so that most tiles are still missing when trees grow elsewhere
+        for (int row = 0; row < 20; row++)
+            for (int column = 0; column < 20; column++)
+                engine.setState(column, row, ForestRule.TREE);
+        engine.setState(10, 10, ForestRule.FIRE);
+
+        engine.setStochasticRule(new StochasticForestRule(0.2, 0.001, 0.5, 42));
+        engine.setParallelism(parallelism);
+        return engine;
+    }
+}
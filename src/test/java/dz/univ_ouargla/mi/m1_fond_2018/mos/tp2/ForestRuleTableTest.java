@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.util.Random;
+
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.RuleTableEngine;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ForestRuleTableTest {
+
+    private static final int[] STATES = {
+            ForestRule.EMPTY, ForestRule.TREE, ForestRule.TREE, ForestRule.TREE,
+            ForestRule.FIRE, ForestRule.BURNED, ForestRule.BURNED_SLIGHTLY
+    };
+
+    @Test
+    public void tableEvolvesAsForestEngine() {
+        for (long seed = 0; seed < 5; seed++) {
+            final ForestEngine expected = new ForestEngine(97, 61);
+            final RuleTableEngine actual = new RuleTableEngine(ForestRule.TABLE, 97, 61);
+            final Random random = new Random(seed);
+            for (int row = 0; row < 61; row++)
+                for (int column = 0; column < 97; column++) {
+                    final int state = STATES[random.nextInt(STATES.length)];
+                    expected.setState(column, row, state);
+                    actual.setState(column, row, state);
+                }
+
+            for (int generation = 0; generation < 50; generation++) {
+                expected.step();
+                actual.step();
+
+                for (int row = 0; row < 61; row++)
+                    for (int column = 0; column < 97; column++)
+                        assertEquals(expected.getState(column, row), actual.getState(column, row));
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018 Youcef DEBBAH (youcef-debbah@hotmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the Software) to deal in the Software without restriction
+ * but under the following conditions:
+ *
+ * - This notice shall be included in all copies and portions of the Software.
+ * - The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND (Implicit or Explicit).
+ *
+ */
+
+package dz.univ_ouargla.mi.m1_fond_2018.mos.tp2;
+
+import java.awt.Dimension;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import dz.univ_ouargla.mi.m1_fond_2018.mos.common.RetentionPolicy;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ForestTest {
+
+    @Test
+    public void forkKeepsForestLargerThanRetentionLimit() throws Exception {
+        final ForestEngine engine = new ForestEngine();
+        engine.setRetentionPolicy(RetentionPolicy.keepAtMost(1 << 22));
+        final ForestKeeper forestKeeper = new ForestKeeper(engine);
+        forestKeeper.pack(new Dimension(3841, 2161), 1, 0);
+        engine.seed(3, 0.6);
+
+        final Forest forest = new Forest(forestKeeper);
+        forest.setCellSize(1);
+        forest.setBorderWidth(0);
+
+        final Path snapshot = Files.createTempFile("fork", ".forest");
+        try {
+            forest.fork().saveSnapshot(snapshot);
+            final ForestEngine fork = new ForestEngine();
+            ForestSnapshot.load(fork, snapshot);
+
+            assertEquals(3841, fork.getColumnsCount());
+            assertEquals(2161, fork.getRowsCount());
+            assertEquals(engine.count(ForestRule.TREE), fork.count(ForestRule.TREE));
+        } finally {
+            Files.delete(snapshot);
+        }
+    }
+
+    @Test
+    public void loadKeepsForestLargerThanPanelAndRetentionLimit() throws Exception {
+        final ForestEngine loaded = new ForestEngine(3000, 3000);
+        loaded.seed(5, 0.6);
+
+        final ForestEngine engine = new ForestEngine();
+        engine.setRetentionPolicy(RetentionPolicy.keepAtMost(1 << 22));
+        final ForestKeeper forestKeeper = new ForestKeeper(engine);
+        forestKeeper.pack(new Dimension(800, 600), 1, 0);
+
+        final Path snapshot = Files.createTempFile("load", ".forest");
+        try {
+            ForestSnapshot.save(loaded, snapshot);
+            forestKeeper.load(snapshot);
+            assertEquals(800, engine.getColumnsCount());
+            assertEquals(600, engine.getRowsCount());
+
+            forestKeeper.pack(new Dimension(3000, 3000), 1, 0);
+            forestKeeper.save(snapshot);
+            final ForestEngine saved = new ForestEngine();
+            ForestSnapshot.load(saved, snapshot);
+
+            assertEquals(loaded.count(ForestRule.TREE), saved.count(ForestRule.TREE));
+            for (int row = 0; row < 3000; row += 7)
+                for (int column = 0; column < 3000; column += 3)
+                    assertEquals(loaded.getState(column, row), saved.getState(column, row));
+        } finally {
+            Files.delete(snapshot);
+        }
+    }
+}